@@ -0,0 +1,78 @@
+package dev.tremeq.abyss.benchmark;
+
+import dev.tremeq.abyss.Abyss;
+import dev.tremeq.abyss.AbyssGUI;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Budowanie stron GUI dla gracza z otwartą Otchłanią
+ * Jeden wątek - GUI działa tylko na głównym wątku serwera
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(1)
+@State(Scope.Benchmark)
+public class AbyssGUIBenchmark {
+    @Param({"1000", "100000"})
+    public int entries;
+
+    private AbyssGUI gui;
+    private PlayerMock player;
+    private int pages;
+    private int page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Abyss plugin = BenchmarkPlugin.start();
+        plugin.getAbyssManager().addItems(BenchmarkPlugin.items(entries, 1));
+
+        gui = plugin.getAbyssGUI();
+        player = MockBukkit.getMock().addPlayer();
+        gui.openGUI(player);
+        pages = plugin.getAbyssManager().getTotalPages(gui.getItemsPerPage());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkPlugin.stop();
+    }
+
+    /**
+     * Przejście na następną stronę - wszystkie sloty i pasek nawigacji są budowane od nowa
+     */
+    @Benchmark
+    public int changePage() {
+        page = (page + 1) % pages;
+        gui.changePage(player, page);
+        return page;
+    }
+
+    /**
+     * Odświeżenie strony bez zmian w magazynie - ta sama wersja, strona nie jest budowana (bez alokacji)
+     */
+    @Benchmark
+    public int refreshUnchanged() {
+        gui.refreshGUI(player, page);
+        return page;
+    }
+}
@@ -0,0 +1,139 @@
+package dev.tremeq.abyss.benchmark;
+
+import dev.tremeq.abyss.AbyssManager;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dodawanie, zabieranie i strony magazynu przy różnych rozmiarach Otchłani
+ * Rozmiar magazynu jest stały w trakcie pomiaru - każde dodanie ma swoje zabranie
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class AbyssManagerBenchmark {
+    private static final int BATCH = 64;
+    private static final int ITEMS_PER_PAGE = 45;
+
+    @Param({"1000", "100000", "1000000"})
+    public int entries;
+
+    private AbyssManager manager;
+    private List<ItemStack> batch;
+    private int pages;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        manager = BenchmarkPlugin.start().getAbyssManager();
+        manager.addItems(BenchmarkPlugin.items(entries, 1));
+        batch = BenchmarkPlugin.items(BATCH, 2);
+        pages = manager.getTotalPages(ITEMS_PER_PAGE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkPlugin.stop();
+    }
+
+    /**
+     * Wrzucenie paczki (np. zebrane itemy) i zabranie tylu samo najstarszych przedmiotów
+     */
+    @Benchmark
+    public int addItemsThenTake() {
+        manager.addItems(batch);
+        int taken = 0;
+        for (int i = 0; i < BATCH; i++) {
+            if (manager.takeItem(0) != null) {
+                taken++;
+            }
+        }
+        return taken;
+    }
+
+    /**
+     * Zabranie losowego przedmiotu i odłożenie go na koniec (kliknięcie gracza)
+     */
+    @Benchmark
+    public ItemStack takeItem(Cursor cursor) {
+        return takeAndReturn(cursor);
+    }
+
+    /**
+     * Jak {@link #takeItem}, ale czterech graczy klika jednocześnie
+     */
+    @Benchmark
+    @Threads(4)
+    public ItemStack takeItemContended(Cursor cursor) {
+        return takeAndReturn(cursor);
+    }
+
+    /**
+     * Przedmioty losowej strony GUI
+     */
+    @Benchmark
+    public List<ItemStack> getItemsForPage(Cursor cursor) {
+        return manager.getItemsForPage(cursor.next(pages), ITEMS_PER_PAGE);
+    }
+
+    /**
+     * Zmiany magazynu w trakcie przeglądania - jeden wątek wrzuca i zabiera, trzy czytają strony
+     */
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public int contendedWriter() {
+        return addItemsThenTake();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public List<ItemStack> contendedReader(Cursor cursor) {
+        return getItemsForPage(cursor);
+    }
+
+    private ItemStack takeAndReturn(Cursor cursor) {
+        ItemStack item = manager.takeItem(cursor.next(manager.getItemCount()));
+        if (item != null) {
+            manager.addItem(item);
+        }
+        return item;
+    }
+
+    /**
+     * Losowe pozycje - osobne dla każdego wątku, żeby wątki nie czytały tych samych stron
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private static final AtomicLong SEEDS = new AtomicLong(42);
+
+        private final SplittableRandom random = new SplittableRandom(SEEDS.getAndIncrement());
+
+        int next(int bound) {
+            return bound > 0 ? random.nextInt(bound) : 0;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package dev.tremeq.abyss.benchmark;
+
+import dev.tremeq.abyss.Abyss;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Plugin włączony na serwerze MockBukkit - benchmarki działają bez prawdziwego serwera
+ *
+ * Zapis na dysk, zimna warstwa i zbieranie itemów są wyłączone: mierzymy ścieżki w pamięci,
+ * bez wątku zapisu dziennika i tasków w tle, które zaszumiłyby wyniki.
+ */
+final class BenchmarkPlugin {
+    private static final Material[] MATERIALS = {
+            Material.STONE, Material.COBBLESTONE, Material.DIRT, Material.OAK_LOG, Material.IRON_INGOT,
+            Material.DIAMOND, Material.BREAD, Material.ARROW, Material.DIAMOND_SWORD, Material.ROTTEN_FLESH
+    };
+
+    private BenchmarkPlugin() {
+    }
+
+    /**
+     * Uruchamia serwer MockBukkit i włącza plugin z ustawieniami do benchmarków
+     */
+    static Abyss start() {
+        ServerMock server = MockBukkit.mock();
+        Abyss plugin = MockBukkit.load(Abyss.class);
+
+        // Ustawienia są czytane przy włączaniu - zmieniamy config w pamięci i włączamy plugin ponownie
+        plugin.getConfig().set("storage.enabled", false);
+        plugin.getConfig().set("storage.cold-tier.enabled", false);
+        plugin.getConfig().set("item-collection.enabled", false);
+        server.getPluginManager().disablePlugin(plugin);
+        server.getPluginManager().enablePlugin(plugin);
+        return plugin;
+    }
+
+    /**
+     * Zatrzymuje serwer MockBukkit
+     */
+    static void stop() {
+        MockBukkit.unmock();
+    }
+
+    /**
+     * Tworzy przedmioty do magazynu - kilka materiałów i losowe ilości, co ósmy z własną nazwą
+     * (różne wzorce, jak przedmioty graczy, a nie jeden powtarzany stack)
+     */
+    static List<ItemStack> items(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<ItemStack> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Material material = MATERIALS[random.nextInt(MATERIALS.length)];
+            ItemStack item = new ItemStack(material, 1 + random.nextInt(material.getMaxStackSize()));
+
+            if (random.nextInt(8) == 0) {
+                ItemMeta meta = item.getItemMeta();
+                meta.displayName(Component.text("Skarb #" + random.nextInt(512)));
+                item.setItemMeta(meta);
+            }
+            items.add(item);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,57 @@
+package dev.tremeq.abyss.benchmark;
+
+import dev.tremeq.abyss.MessageManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wiadomości z pliku (z podstawieniami i bez) oraz kolorowanie tekstu z kolorami HEX
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageManagerBenchmark {
+    private static final String HEX_TEXT = "&#9B59B6&lOtchłań &8- &#E74C3Cstrona &e12 &7z &#2ECC7140";
+
+    private MessageManager messages;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        messages = BenchmarkPlugin.start().getMessageManager();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkPlugin.stop();
+    }
+
+    @Benchmark
+    public String getMessage() {
+        return messages.getMessage("gui.item-taken");
+    }
+
+    @Benchmark
+    public String getMessageWithReplacements() {
+        return messages.getMessage("item-collection.items-collected", "amount", "64");
+    }
+
+    @Benchmark
+    public String colorizeHex() {
+        return messages.colorize(HEX_TEXT);
+    }
+}
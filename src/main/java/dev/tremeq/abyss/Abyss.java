@@ -3,6 +3,8 @@ package dev.tremeq.abyss;
 import dev.tremeq.abyss.commands.AbyssCommand;
 import dev.tremeq.abyss.commands.AbyssReloadCommand;
 import dev.tremeq.abyss.listeners.InventoryListener;
+import dev.tremeq.abyss.listeners.ItemTrackingListener;
+import dev.tremeq.abyss.storage.AbyssEntry;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -18,8 +20,15 @@ public class Abyss extends JavaPlugin {
     private AbyssManager abyssManager;
     private AbyssGUI abyssGUI;
     private ItemCollector itemCollector;
+    private ItemTracker itemTracker;
+    private RefreshScheduler refreshScheduler;
+    private AbyssMetrics metrics;
+    private MetricsExporter metricsExporter;
+    private volatile AbyssSettings settings;
     private BukkitTask autoOpenTask;
     private BukkitTask autoCloseTask;
+    private BukkitTask maintenanceTask;
+    private BukkitTask ingestTask;
     private boolean abyssWindowOpen = false;
 
     @Override
@@ -33,11 +42,28 @@ public class Abyss extends JavaPlugin {
 
         // Załaduj konfigurację
         saveDefaultConfig();
+        this.settings = AbyssSettings.load(getConfig(), getLogger());
 
         // Inicjalizuj menedżery
+        AbyssEntry.setLogger(getLogger());
+        this.metrics = new AbyssMetrics();
         this.messageManager = new MessageManager(this);
         this.abyssManager = new AbyssManager(this);
         this.abyssGUI = new AbyssGUI(this);
+        this.itemTracker = new ItemTracker(this);
+        this.refreshScheduler = new RefreshScheduler(this);
+        refreshScheduler.start();
+        this.metricsExporter = new MetricsExporter(this);
+        metricsExporter.start();
+
+        // Zgłoszone przedmioty trafiają do magazynu jedną paczką na tick
+        this.ingestTask = Bukkit.getScheduler().runTaskTimer(this, abyssManager::drainIngestQueue, 1L, 1L);
+
+        // Utrzymanie magazynu co sekundę - wygasanie przedmiotów i przenoszenie nieużywanych do zimnej warstwy
+        this.maintenanceTask = Bukkit.getScheduler().runTaskTimer(this, () -> {
+            abyssManager.expireItems();
+            abyssManager.demoteColdEntries();
+        }, 20L, 20L);
 
         // Zarejestruj komendy
         registerCommands();
@@ -45,13 +71,16 @@ public class Abyss extends JavaPlugin {
         // Zarejestruj listenery
         registerListeners();
 
+        // Zbuduj indeks leżących itemów
+        itemTracker.reload();
+
         // Inicjalizuj ItemCollector
-        if (getConfig().getBoolean("item-collection.enabled", true)) {
+        if (settings.collectionEnabled()) {
             this.itemCollector = new ItemCollector(this);
         }
 
         // Uruchom system okien czasowych
-        if (getConfig().getBoolean("auto-open.enabled", false)) {
+        if (settings.autoOpenEnabled()) {
             startAutoOpen();
             // ItemCollector będzie wywoływany przy każdym otwarciu okna czasowego
         } else {
@@ -75,15 +104,42 @@ public class Abyss extends JavaPlugin {
         if (autoCloseTask != null) {
             autoCloseTask.cancel();
         }
+        if (maintenanceTask != null) {
+            maintenanceTask.cancel();
+        }
+        if (ingestTask != null) {
+            // Reszta kolejki jest zapisywana przy zamknięciu magazynu
+            ingestTask.cancel();
+        }
         if (itemCollector != null) {
             itemCollector.cancel();
         }
+        if (metricsExporter != null) {
+            metricsExporter.stop();
+        }
+        if (refreshScheduler != null) {
+            refreshScheduler.stop();
+            getLogger().info("Odświeżenia GUI: " + metrics.getRefreshRequests() + " żądań, "
+                    + metrics.getRefreshFlushes() + " wykonanych (zaoszczędzono " + metrics.getRefreshesSaved() + ")");
+            if (metrics.getEvictions() > 0) {
+                getLogger().info("Usunięto ponad limit: " + metrics.getEvictions() + " przedmiotów (~"
+                        + metrics.getEvictedBytes() / 1024 + " KB)");
+            }
+            if (metrics.getExpirations() > 0) {
+                getLogger().info("Wygasło: " + metrics.getExpirations() + " przedmiotów");
+            }
+        }
 
         // Zamknij wszystkie GUI
         if (abyssGUI != null) {
             abyssGUI.closeAllGUIs();
         }
 
+        // Zapisz magazyn na dysk
+        if (abyssManager != null) {
+            abyssManager.shutdown();
+        }
+
         getLogger().info("Plugin został wyłączony!");
     }
 
@@ -104,14 +160,15 @@ public class Abyss extends JavaPlugin {
      */
     private void registerListeners() {
         getServer().getPluginManager().registerEvents(new InventoryListener(this), this);
+        getServer().getPluginManager().registerEvents(new ItemTrackingListener(this), this);
     }
 
     /**
      * Uruchamia system okien czasowych
      */
     private void startAutoOpen() {
-        int interval = getConfig().getInt("auto-open.interval", 300);
-        int duration = getConfig().getInt("auto-open.duration", 30);
+        int interval = settings.autoOpenInterval();
+        int duration = settings.autoOpenDuration();
 
         // Konwertuj sekundy na ticki
         long intervalTicks = interval * 20L;
@@ -193,6 +250,7 @@ public class Abyss extends JavaPlugin {
     @Override
     public void reloadConfig() {
         super.reloadConfig();
+        this.settings = AbyssSettings.load(getConfig(), getLogger());
 
         // Przeładuj menedżer wiadomości
         if (messageManager != null) {
@@ -204,22 +262,57 @@ public class Abyss extends JavaPlugin {
             autoOpenTask.cancel();
         }
 
-        if (getConfig().getBoolean("auto-open.enabled", false)) {
+        if (settings.autoOpenEnabled()) {
             startAutoOpen();
         }
 
+        // Restart schedulera odświeżania (interwał mógł się zmienić)
+        if (refreshScheduler != null) {
+            refreshScheduler.stop();
+            refreshScheduler = new RefreshScheduler(this);
+            refreshScheduler.start();
+        }
+
+        // Restart eksportu metryk (port i plik mogły się zmienić)
+        if (metricsExporter != null) {
+            metricsExporter.stop();
+            metricsExporter.start();
+        }
+
+        // Zastosuj nowe limity i czasy życia (nadmiarowe przedmioty są usuwane od razu)
+        if (abyssManager != null) {
+            abyssManager.reloadSettings();
+        }
+
+        // Przebuduj szablon nawigacji (materiały, sloty i teksty przycisków mogły się zmienić)
+        if (abyssGUI != null) {
+            abyssGUI.reloadNavigation();
+            if (refreshScheduler != null) {
+                refreshScheduler.requestRefresh();
+            }
+        }
+
+        // Przebuduj indeks itemów (blacklista mogła się zmienić)
+        if (itemTracker != null) {
+            itemTracker.reload();
+        }
+
         // Restart ItemCollector jeśli włączony
         if (itemCollector != null) {
             itemCollector.cancel();
         }
 
-        if (getConfig().getBoolean("item-collection.enabled", true)) {
+        if (settings.collectionEnabled()) {
             this.itemCollector = new ItemCollector(this);
             this.itemCollector.start();
         }
     }
 
     // Gettery
+    public AbyssSettings getSettings() {
+        return settings;
+    }
+
     public MessageManager getMessageManager() {
         return messageManager;
     }
@@ -232,6 +325,18 @@ public class Abyss extends JavaPlugin {
         return abyssGUI;
     }
 
+    public ItemTracker getItemTracker() {
+        return itemTracker;
+    }
+
+    public RefreshScheduler getRefreshScheduler() {
+        return refreshScheduler;
+    }
+
+    public AbyssMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Sprawdza czy okno czasowe jest otwarte
      */
@@ -1,5 +1,10 @@
 package dev.tremeq.abyss;
 
+import dev.tremeq.abyss.AbyssSettings.NavigationAction;
+import dev.tremeq.abyss.storage.AbyssEntry;
+import dev.tremeq.abyss.storage.SearchQuery;
+import dev.tremeq.abyss.storage.SearchResult;
+import dev.tremeq.abyss.storage.SortMode;
 import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -7,6 +12,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
 import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.*;
@@ -17,140 +23,423 @@ import java.util.*;
 public class AbyssGUI implements InventoryHolder {
     private final Abyss plugin;
     private final Map<UUID, Integer> playerPages;
-    private final Map<UUID, Inventory> playerInventories;
+    private final Map<UUID, ViewerState> playerViews;
+    // Ostatnie wyszukiwanie gracza - kolejne /abyss search i /abyss filter je uzupełniają
+    private final Map<UUID, SearchQuery> playerQueries;
+    // Tryb sortowania gracza - zostaje też po zamknięciu GUI
+    private final Map<UUID, SortMode> playerSorts;
+    // Zakładka (kategoria) gracza - brak wpisu = cały magazyn
+    private final Map<UUID, Integer> playerCategories;
     private final int size;
     private final int itemsPerPage;
 
+    // Gotowy pasek nawigacji - budowany raz na wczytanie configu, potem tylko kopiowany
+    private NavigationTemplate navigation;
+    // Przyciski info dla stron przy bieżącej liczbie stron i itemów
+    private final Map<Integer, ItemStack> infoButtons = new HashMap<>();
+    private int infoTotalPages = -1;
+    private int infoItemCount = -1;
+
     public AbyssGUI(Abyss plugin) {
         this.plugin = plugin;
         this.playerPages = new HashMap<>();
-        this.playerInventories = new HashMap<>();
-        this.size = plugin.getConfig().getInt("gui.size", 54);
+        this.playerViews = new HashMap<>();
+        this.playerQueries = new HashMap<>();
+        this.playerSorts = new HashMap<>();
+        this.playerCategories = new HashMap<>();
+        this.size = plugin.getSettings().guiSize();
         // Ostatnia linia (9 slotów) to nawigacja
         this.itemsPerPage = size - 9;
+        this.navigation = buildNavigationTemplate();
     }
 
     /**
-     * Otwiera GUI dla gracza
+     * Otwiera GUI dla gracza (bez wyszukiwania)
      */
     public void openGUI(Player player) {
-        openGUI(player, 0);
+        openGUI(player, 0, null);
     }
 
     /**
-     * Otwiera GUI dla gracza na określonej stronie
+     * Otwiera GUI dla gracza na określonej stronie (z bieżącym wyszukiwaniem gracza)
      */
     public void openGUI(Player player, int page) {
-        // Walidacja strony - upewnij się że strona jest poprawna
-        AbyssManager manager = plugin.getAbyssManager();
-        int totalPages = manager.getTotalPages(itemsPerPage);
+        openGUI(player, page, playerQueries.get(player.getUniqueId()));
+    }
+
+    /**
+     * Otwiera GUI dla gracza na określonej stronie, pokazując tylko przedmioty pasujące do zapytania
+     * @param query zapytanie lub null, aby pokazać cały magazyn
+     */
+    public void openGUI(Player player, int page, SearchQuery query) {
+        if (query == null || query.isEmpty()) {
+            query = null;
+            playerQueries.remove(player.getUniqueId());
+        } else {
+            playerQueries.put(player.getUniqueId(), query);
+        }
+
+        ViewerState view = new ViewerState(createInventory(), query, getSortMode(player), getCategory(player));
 
-        // Ogranicz stronę do ważnego zakresu
-        page = Math.max(0, Math.min(page, totalPages - 1));
+        // Walidacja strony - upewnij się że strona jest poprawna
+        page = clampPage(page, view);
 
         // Ustaw bieżącą stronę gracza
         playerPages.put(player.getUniqueId(), page);
 
-        // Stwórz lub zaktualizuj inventory
-        Inventory inventory = createInventory(player, page);
-        playerInventories.put(player.getUniqueId(), inventory);
+        // Wypełnij inventory zawartością strony
+        render(view, page, 0);
+        playerViews.put(player.getUniqueId(), view);
 
         // Otwórz GUI
-        player.openInventory(inventory);
+        player.openInventory(view.inventory);
 
-        if (plugin.getConfig().getBoolean("debug", false)) {
+        if (plugin.getSettings().debug()) {
             plugin.getLogger().info("Otwarto GUI dla gracza " + player.getName() + " na stronie " + page);
         }
     }
 
     /**
-     * Tworzy inventory dla gracza
+     * Ogranicza stronę do ważnego zakresu
      */
-    private Inventory createInventory(Player player, int page) {
-        // Pobierz tytuł z config.yml (nie z messages!)
-        String title = plugin.getConfig().getString("gui.title", "&8&lOtchłań");
-        title = plugin.getMessageManager().colorize(title);
+    private int clampPage(int page, ViewerState view) {
+        int totalPages = getTotalPages(view);
+        return Math.max(0, Math.min(page, totalPages - 1));
+    }
+
+    /**
+     * Oblicza liczbę stron magazynu, zakładki lub wyniku wyszukiwania
+     */
+    private int getTotalPages(ViewerState view) {
+        SearchResult result = search(view);
+        if (result != null) {
+            return result.getTotalPages(itemsPerPage);
+        }
+        if (view.category < 0 && !view.sort.isIndexed()) {
+            return plugin.getAbyssManager().getTotalPages(itemsPerPage);
+        }
+        return pagesFor(plugin.getAbyssManager().getItemCount(view.category, view.sort));
+    }
+
+    /**
+     * Wyszukuje przedmioty pokazywane w oknie (w zakładce - tylko z jej kategorii)
+     * @return wynik lub null, jeśli okno nie pokazuje wyszukiwania albo wyszukiwanie jest wyłączone
+     */
+    private SearchResult search(ViewerState view) {
+        if (view.query == null) {
+            return null;
+        }
+        SearchQuery query = view.category >= 0 ? view.query.withCategory(view.category) : view.query;
+        return plugin.getAbyssManager().search(query);
+    }
+
+    private int pagesFor(int itemCount) {
+        return Math.max(1, (itemCount + itemsPerPage - 1) / itemsPerPage);
+    }
+
+    /**
+     * Pobiera tryb sortowania gracza
+     */
+    public SortMode getSortMode(Player player) {
+        return playerSorts.getOrDefault(player.getUniqueId(), SortMode.OLDEST);
+    }
+
+    /**
+     * Zmienia tryb sortowania gracza - otwarte GUI wraca na pierwszą stronę w nowej kolejności
+     */
+    public void setSortMode(Player player, SortMode sort) {
+        if (sort == SortMode.OLDEST) {
+            playerSorts.remove(player.getUniqueId());
+        } else {
+            playerSorts.put(player.getUniqueId(), sort);
+        }
+
+        ViewerState view = playerViews.get(player.getUniqueId());
+        if (view == null || player.getOpenInventory().getTopInventory() != view.inventory) {
+            return;
+        }
+        view.sort = sort;
+        // Wymuś złożenie paska od nowa - przycisk sortowania pokazuje bieżący tryb
+        view.itemCount = -1;
+        playerPages.put(player.getUniqueId(), 0);
+        render(view, 0, 0);
+    }
+
+    /**
+     * Pobiera zakładkę gracza
+     * @return kategoria lub -1, jeśli gracz przegląda cały magazyn
+     */
+    public int getCategory(Player player) {
+        Integer category = playerCategories.get(player.getUniqueId());
+        // Po przeładowaniu configu kategorii może być mniej
+        if (category == null || category >= plugin.getSettings().categories().size()) {
+            return -1;
+        }
+        return category;
+    }
+
+    /**
+     * Zmienia zakładkę gracza - otwarte GUI wraca na pierwszą stronę zakładki
+     * @param category kategoria lub -1 dla całego magazynu
+     */
+    public void setCategory(Player player, int category) {
+        if (category < 0) {
+            playerCategories.remove(player.getUniqueId());
+        } else {
+            playerCategories.put(player.getUniqueId(), category);
+        }
 
-        Inventory inventory = Bukkit.createInventory(this, size, title);
+        ViewerState view = playerViews.get(player.getUniqueId());
+        if (view == null || player.getOpenInventory().getTopInventory() != view.inventory) {
+            return;
+        }
+        view.category = category;
+        // Wymuś złożenie paska od nowa - przycisk kategorii pokazuje bieżącą zakładkę
+        view.itemCount = -1;
+        playerPages.put(player.getUniqueId(), 0);
+        render(view, 0, 0);
+    }
 
-        // Wypełnij przedmiotami z magazynu
-        fillWithItems(inventory, page);
+    /**
+     * Pobiera bieżące wyszukiwanie gracza
+     * @return zapytanie lub null, jeśli gracz przegląda cały magazyn
+     */
+    public SearchQuery getQuery(Player player) {
+        return playerQueries.get(player.getUniqueId());
+    }
 
-        // Dodaj przyciski nawigacji
-        addNavigationButtons(inventory, page);
+    /**
+     * Tworzy puste inventory GUI
+     */
+    private Inventory createInventory() {
+        // Pobierz tytuł z config.yml (nie z messages!)
+        String title = plugin.getMessageManager().colorize(plugin.getSettings().guiTitle());
 
-        return inventory;
+        return Bukkit.createInventory(this, size, title);
     }
 
     /**
-     * Wypełnia inventory przedmiotami z magazynu
+     * Renderuje stronę w inventory widza, zmieniając tylko sloty, które faktycznie się zmieniły
+     * @param dirtyFrom najniższy globalny indeks zmieniony od poprzedniego renderu
+     * @return ilość zmienionych slotów
      */
-    private void fillWithItems(Inventory inventory, int page) {
+    private int render(ViewerState view, int page, int dirtyFrom) {
         AbyssManager manager = plugin.getAbyssManager();
-        List<ItemStack> pageItems = manager.getItemsForPage(page, itemsPerPage);
+        // Wersja przed odczytem - jeśli magazyn zmieni się w trakcie, następne odświeżenie i tak wyrenderuje stronę
+        long version = manager.getVersion();
+        // Wynik z indeksu jest pamiętany do następnej zmiany magazynu - widzowie z tym samym zapytaniem go dzielą
+        SearchResult result = search(view);
+        SortMode sort = view.sort;
+        int category = view.category;
+        int itemCount;
+        if (result != null) {
+            itemCount = result.size();
+        } else if (category < 0 && !sort.isIndexed()) {
+            itemCount = manager.getItemCount();
+        } else {
+            // Rozmiar partycji lub posortowanego widoku - bez przeglądania magazynu
+            itemCount = manager.getItemCount(category, sort);
+        }
+        int totalPages = pagesFor(itemCount);
+        boolean pageChanged = view.page != page;
+        int written = 0;
+
+        // Strony w całości przed zmienionym indeksem mają te same przedmioty - nie ruszamy ich
+        // (w wyniku wyszukiwania, zakładce i innej kolejności pozycje nie odpowiadają indeksom magazynu - stronę zawsze porównujemy)
+        boolean storageOrder = result == null && category < 0 && sort == SortMode.OLDEST;
+        if (pageChanged || !storageOrder || dirtyFrom < (page + 1) * itemsPerPage) {
+            List<AbyssEntry> pageEntries = result != null
+                    ? result.getPage(page, itemsPerPage, sort)
+                    : manager.getEntriesForPage(page, itemsPerPage, category, sort);
+
+            for (int i = 0; i < itemsPerPage; i++) {
+                AbyssEntry entry = i < pageEntries.size() ? pageEntries.get(i) : null;
+                long entryId = entry != null ? entry.getId() : -1;
+                int revision = entry != null ? entry.getRevision() : 0;
+
+                if (entry != null) {
+                    // Oglądany wpis - polityka LRU usunie go później niż nieoglądane
+                    entry.touch();
+                }
+
+                // Ten sam wpis bez zmian - slot już pokazuje ten przedmiot
+                // (wpisy ze wzorca budują nowy ItemStack przy każdym pobraniu, więc nie porównujemy referencji)
+                if (entryId == view.entryIds[i] && revision == view.revisions[i]) {
+                    continue;
+                }
 
-        // Wypełnij sloty przedmiotami (bez ostatniej linii)
-        for (int i = 0; i < pageItems.size() && i < itemsPerPage; i++) {
-            ItemStack item = pageItems.get(i);
-            if (item != null && !item.getType().isAir()) {
-                inventory.setItem(i, item);
+                ItemStack item = entry != null ? entry.getItem() : null;
+                if (item != null && item.getType().isAir()) {
+                    item = null;
+                }
+
+                // Slot pamięta, który wpis pokazuje - kliknięcie zabiera dokładnie ten wpis
+                view.entryIds[i] = entryId;
+                view.revisions[i] = revision;
+                view.inventory.setItem(i, item);
+                view.slots[i] = item;
+                written++;
             }
         }
+
+        // Pasek nawigacji zależy tylko od strony, liczby stron i liczby itemów
+        if (pageChanged || view.totalPages != totalPages || view.itemCount != itemCount) {
+            ItemStack[] navigation = new ItemStack[9];
+            addNavigationButtons(navigation, page, totalPages, itemCount, view);
+
+            for (int i = 0; i < 9; i++) {
+                int slot = itemsPerPage + i;
+                // Przyciski z szablonu są współdzielone - wystarczy porównanie referencji
+                if (navigation[i] != view.slots[slot]) {
+                    view.inventory.setItem(slot, navigation[i]);
+                    view.slots[slot] = navigation[i];
+                    written++;
+                }
+            }
+
+            view.totalPages = totalPages;
+            view.itemCount = itemCount;
+        }
+
+        view.page = page;
+        view.version = version;
+        return written;
     }
 
     /**
-     * Dodaje przyciski nawigacji do ostatniej linii GUI
+     * Wypełnia dolny pasek nawigacji (9 slotów) przyciskami z gotowego szablonu
+     * Kolejność jak dawniej: szkło, poprzednia, info, sortowanie, kategoria, wrzucanie, następna, zamknij
+     * (późniejszy wygrywa przy kolizji slotów)
      */
-    private void addNavigationButtons(Inventory inventory, int page) {
-        AbyssManager manager = plugin.getAbyssManager();
-        int totalPages = manager.getTotalPages(itemsPerPage);
-        int itemCount = manager.getItemCount();
+    private void addNavigationButtons(ItemStack[] navigation, int page, int totalPages, int itemCount, ViewerState view) {
+        NavigationTemplate template = this.navigation;
 
-        // Slot początku ostatniej linii
-        int navStart = size - 9;
+        if (template.filler != null) {
+            Arrays.fill(navigation, template.filler);
+        }
 
-        // Wypełnij dolny pasek szkłem, jeśli włączone
-        if (plugin.getConfig().getBoolean("navigation.glass-filler.enabled", true)) {
-            fillNavigationBarWithGlass(inventory, navStart);
+        if (template.previousButton != null && page > 0) {
+            navigation[template.previousSlot] = template.previousButton;
         }
 
-        // Przycisk "Poprzednia strona"
-        if (plugin.getConfig().getBoolean("navigation.previous-page.enabled", true) && page > 0) {
-            int prevSlot = navStart + plugin.getConfig().getInt("navigation.previous-page.slot", 0);
-            ItemStack prevButton = createNavigationButton("previous-page", page > 0);
-            inventory.setItem(prevSlot, prevButton);
+        if (template.infoSlot >= 0) {
+            // Przyciski wyniku wyszukiwania i zakładek nie trafiają do wspólnej pamięci przycisków magazynu
+            boolean filtered = view.query != null || view.category >= 0;
+            navigation[template.infoSlot] = filtered
+                    ? createInfoButton(page, totalPages, itemCount)
+                    : getInfoButton(page, totalPages, itemCount);
         }
 
-        // Przycisk "Info"
-        if (plugin.getConfig().getBoolean("navigation.info.enabled", true)) {
-            int infoSlot = navStart + plugin.getConfig().getInt("navigation.info.slot", 3);
-            ItemStack infoButton = createInfoButton(page, totalPages, itemCount);
-            inventory.setItem(infoSlot, infoButton);
+        if (template.sortButtons != null) {
+            navigation[template.sortSlot] = template.sortButtons[view.sort.ordinal()];
         }
 
-        // Przycisk "Następna strona"
-        if (plugin.getConfig().getBoolean("navigation.next-page.enabled", true) && page < totalPages - 1) {
-            int nextSlot = navStart + plugin.getConfig().getInt("navigation.next-page.slot", 8);
-            ItemStack nextButton = createNavigationButton("next-page", page < totalPages - 1);
-            inventory.setItem(nextSlot, nextButton);
+        if (template.categoryButtons != null) {
+            // Zakładka spoza szablonu (config zmieniony w trakcie) - przycisk całego magazynu
+            int tab = view.category + 1;
+            navigation[template.categorySlot] = template.categoryButtons[tab < template.categoryButtons.length ? tab : 0];
         }
 
-        // Przycisk "Zamknij"
-        if (plugin.getConfig().getBoolean("navigation.close.enabled", true)) {
-            int closeSlot = navStart + plugin.getConfig().getInt("navigation.close.slot", 5);
-            ItemStack closeButton = createNavigationButton("close", true);
-            inventory.setItem(closeSlot, closeButton);
+        if (template.depositButton != null) {
+            navigation[template.depositSlot] = template.depositButton;
+        }
+
+        if (template.nextButton != null && page < totalPages - 1) {
+            navigation[template.nextSlot] = template.nextButton;
+        }
+
+        if (template.closeButton != null) {
+            navigation[template.closeSlot] = template.closeButton;
         }
     }
 
     /**
-     * Wypełnia dolny pasek nawigacji szkłem
+     * Przebudowuje szablon nawigacji po zmianie configu lub wiadomości (np. /abyssreload)
+     * Otwarte GUI dostaną nowy pasek przy najbliższym odświeżeniu
      */
-    private void fillNavigationBarWithGlass(Inventory inventory, int navStart) {
-        String material = plugin.getConfig().getString("navigation.glass-filler.material", "GRAY_STAINED_GLASS_PANE");
+    public void reloadNavigation() {
+        this.navigation = buildNavigationTemplate();
+        infoButtons.clear();
+
+        // Wymuś ponowne złożenie paska u wszystkich widzów
+        for (ViewerState view : playerViews.values()) {
+            view.itemCount = -1;
+            view.version = -1;
+        }
+    }
+
+    /**
+     * Buduje szablon paska nawigacji - jedyne miejsce, które czyta config nawigacji
+     */
+    private NavigationTemplate buildNavigationTemplate() {
+        AbyssSettings settings = plugin.getSettings();
+        NavigationTemplate template = new NavigationTemplate();
+
+        if (settings.glassFiller()) {
+            template.filler = createGlassFiller();
+        }
+
+        template.previousSlot = settings.previousSlot();
+        if (template.previousSlot >= 0) {
+            template.previousButton = createNavigationButton("previous-page", "ARROW");
+        }
+
+        template.nextSlot = settings.nextSlot();
+        if (template.nextSlot >= 0) {
+            template.nextButton = createNavigationButton("next-page", "ARROW");
+        }
+
+        template.closeSlot = settings.closeSlot();
+        if (template.closeSlot >= 0) {
+            template.closeButton = createNavigationButton("close", "BARRIER");
+        }
+
+        template.sortSlot = settings.sortSlot();
+        if (template.sortSlot >= 0) {
+            template.sortButtons = createSortButtons();
+        }
+
+        template.categorySlot = settings.categorySlot();
+        if (template.categorySlot >= 0 && settings.categories().isEnabled()) {
+            template.categoryButtons = createCategoryButtons(settings.categories());
+        }
+
+        template.depositSlot = settings.depositSlot();
+        if (template.depositSlot >= 0) {
+            template.depositButton = createNavigationButton("deposit", "HOPPER_MINECART");
+        }
+
+        template.infoSlot = settings.infoSlot();
+        if (template.infoSlot >= 0) {
+            template.infoMaterial = getMaterial("navigation.info.material", "BOOK");
+            template.infoName = plugin.getMessageManager().getComponent(
+                    plugin.getConfig().getString("navigation.info.name-key"));
+            template.infoLoreKey = plugin.getConfig().getString("navigation.info.lore-key");
+        }
+
+        return template;
+    }
+
+    /**
+     * Pobiera materiał z configu, z domyślnym materiałem jeśli nazwa jest błędna
+     */
+    private Material getMaterial(String path, String defaultMaterial) {
+        String name = plugin.getConfig().getString(path, defaultMaterial);
+        Material material = Material.matchMaterial(name);
+        if (material == null) {
+            plugin.getLogger().warning("Nieprawidłowy materiał w " + path + ": " + name + " - używam " + defaultMaterial);
+            material = Material.valueOf(defaultMaterial);
+        }
+        return material;
+    }
+
+    /**
+     * Tworzy szkło wypełniające dolny pasek nawigacji
+     */
+    private ItemStack createGlassFiller() {
         String name = plugin.getConfig().getString("navigation.glass-filler.name", " ");
 
-        ItemStack glass = new ItemStack(Material.valueOf(material));
+        ItemStack glass = new ItemStack(getMaterial("navigation.glass-filler.material", "GRAY_STAINED_GLASS_PANE"));
         ItemMeta meta = glass.getItemMeta();
 
         if (meta != null) {
@@ -158,36 +447,24 @@ public class AbyssGUI implements InventoryHolder {
             glass.setItemMeta(meta);
         }
 
-        // Wypełnij wszystkie 9 slotów dolnego paska
-        for (int i = 0; i < 9; i++) {
-            inventory.setItem(navStart + i, glass);
-        }
+        return glass;
     }
 
     /**
      * Tworzy przycisk nawigacji
      */
-    private ItemStack createNavigationButton(String type, boolean enabled) {
-        String materialPath = "navigation." + type + ".material";
-        String material = plugin.getConfig().getString(materialPath, "ARROW");
-
-        ItemStack button = new ItemStack(Material.valueOf(material));
+    private ItemStack createNavigationButton(String type, String defaultMaterial) {
+        ItemStack button = new ItemStack(getMaterial("navigation." + type + ".material", defaultMaterial));
         ItemMeta meta = button.getItemMeta();
 
         if (meta != null) {
             // Nazwa przycisku
             String namePath = plugin.getConfig().getString("navigation." + type + ".name-key");
-            String name = plugin.getMessageManager().getMessage(namePath);
-            meta.displayName(Component.text(name));
+            meta.displayName(plugin.getMessageManager().getComponent(namePath));
 
             // Lore przycisku
             String lorePath = plugin.getConfig().getString("navigation." + type + ".lore-key");
-            List<String> lore = plugin.getMessageManager().getMessageList(lorePath);
-            List<Component> loreComponents = new ArrayList<>();
-            for (String line : lore) {
-                loreComponents.add(Component.text(line));
-            }
-            meta.lore(loreComponents);
+            meta.lore(plugin.getMessageManager().getComponentList(lorePath));
 
             button.setItemMeta(meta);
         }
@@ -195,32 +472,107 @@ public class AbyssGUI implements InventoryHolder {
         return button;
     }
 
+    /**
+     * Tworzy przyciski sortowania - jeden dla każdego trybu (lore pokazuje bieżący tryb)
+     * Ścieżki w configu mają wartości domyślne, żeby przycisk działał też ze starym config.yml
+     */
+    private ItemStack[] createSortButtons() {
+        Material material = getMaterial("navigation.sort.material", "HOPPER");
+        String namePath = plugin.getConfig().getString("navigation.sort.name-key", "navigation.sort.name");
+        String lorePath = plugin.getConfig().getString("navigation.sort.lore-key", "navigation.sort.lore");
+
+        SortMode[] modes = SortMode.values();
+        ItemStack[] buttons = new ItemStack[modes.length];
+        for (SortMode mode : modes) {
+            ItemStack button = new ItemStack(material);
+            ItemMeta meta = button.getItemMeta();
+
+            if (meta != null) {
+                String modeName = plugin.getMessageManager().getMessage(
+                        "navigation.sort.modes." + mode.name().toLowerCase(Locale.ROOT));
+                meta.displayName(plugin.getMessageManager().getComponent(namePath, "mode", modeName));
+                meta.lore(plugin.getMessageManager().getComponentList(lorePath, "mode", modeName));
+                button.setItemMeta(meta);
+            }
+
+            buttons[mode.ordinal()] = button;
+        }
+        return buttons;
+    }
+
+    /**
+     * Tworzy przyciski zakładek - indeks 0 to cały magazyn, dalej kategorie w kolejności z configu
+     * Przycisk ma ikonę kategorii; nazwa kategorii z configu lub z pliku wiadomości categories.&lt;id&gt;
+     */
+    private ItemStack[] createCategoryButtons(CategoryRules rules) {
+        String namePath = plugin.getConfig().getString("navigation.category.name-key", "navigation.category.name");
+        String lorePath = plugin.getConfig().getString("navigation.category.lore-key", "navigation.category.lore");
+
+        List<CategoryRules.Category> categories = rules.categories();
+        ItemStack[] buttons = new ItemStack[categories.size() + 1];
+        for (int tab = 0; tab < buttons.length; tab++) {
+            CategoryRules.Category category = tab > 0 ? categories.get(tab - 1) : null;
+            ItemStack button = new ItemStack(category != null
+                    ? category.icon()
+                    : getMaterial("navigation.category.material", "CHEST"));
+            ItemMeta meta = button.getItemMeta();
+
+            if (meta != null) {
+                String categoryName;
+                if (category == null) {
+                    categoryName = plugin.getMessageManager().getMessage("categories.all");
+                } else if (category.name() != null) {
+                    categoryName = plugin.getMessageManager().colorize(category.name());
+                } else {
+                    categoryName = plugin.getMessageManager().getMessage("categories." + category.id());
+                }
+                meta.displayName(plugin.getMessageManager().getComponent(namePath, "category", categoryName));
+                meta.lore(plugin.getMessageManager().getComponentList(lorePath, "category", categoryName));
+                button.setItemMeta(meta);
+            }
+
+            buttons[tab] = button;
+        }
+        return buttons;
+    }
+
+    /**
+     * Pobiera przycisk informacyjny - tworzony ponownie tylko gdy zmieni się strona, liczba stron lub itemów
+     * Widzowie na tej samej stronie dostają ten sam obiekt
+     */
+    private ItemStack getInfoButton(int currentPage, int totalPages, int itemCount) {
+        // Inna liczba stron/itemów unieważnia przyciski wszystkich stron
+        if (infoTotalPages != totalPages || infoItemCount != itemCount) {
+            infoButtons.clear();
+            infoTotalPages = totalPages;
+            infoItemCount = itemCount;
+        }
+
+        ItemStack button = infoButtons.get(currentPage);
+        if (button == null) {
+            button = createInfoButton(currentPage, totalPages, itemCount);
+            infoButtons.put(currentPage, button);
+        }
+        return button;
+    }
+
     /**
      * Tworzy przycisk informacyjny
      */
     private ItemStack createInfoButton(int currentPage, int totalPages, int itemCount) {
-        String material = plugin.getConfig().getString("navigation.info.material", "BOOK");
-        ItemStack button = new ItemStack(Material.valueOf(material));
+        NavigationTemplate template = this.navigation;
+        ItemStack button = new ItemStack(template.infoMaterial);
         ItemMeta meta = button.getItemMeta();
 
         if (meta != null) {
             // Nazwa
-            String namePath = plugin.getConfig().getString("navigation.info.name-key");
-            String name = plugin.getMessageManager().getMessage(namePath);
-            meta.displayName(Component.text(name));
+            meta.displayName(template.infoName);
 
             // Lore z podstawieniami
-            String lorePath = plugin.getConfig().getString("navigation.info.lore-key");
-            List<String> lore = plugin.getMessageManager().getMessageList(lorePath,
+            meta.lore(plugin.getMessageManager().getComponentList(template.infoLoreKey,
                     "current", String.valueOf(currentPage + 1),
                     "total", String.valueOf(totalPages),
-                    "items", String.valueOf(itemCount));
-
-            List<Component> loreComponents = new ArrayList<>();
-            for (String line : lore) {
-                loreComponents.add(Component.text(line));
-            }
-            meta.lore(loreComponents);
+                    "items", String.valueOf(itemCount)));
 
             button.setItemMeta(meta);
         }
@@ -230,60 +582,98 @@ public class AbyssGUI implements InventoryHolder {
 
     /**
      * Odświeża GUI dla wszystkich graczy, którzy je mają otwarte
+     * Wysyłane są tylko sloty zmienione od poprzedniego odświeżenia, a strony
+     * wyrenderowane przy bieżącej wersji magazynu są pomijane bez żadnych alokacji
      */
     public void refreshAllViewers() {
-        // Skopiuj keySet aby uniknąć ConcurrentModificationException
-        Set<UUID> viewers = new HashSet<>(playerInventories.keySet());
-
-        for (UUID uuid : viewers) {
+        long start = System.nanoTime();
+        int dirtyFrom = plugin.getAbyssManager().consumeDirtyIndex();
+        int refreshed = 0;
+        int written = 0;
+
+        // Iterator pozwala usuwać zamknięte okna w trakcie przechodzenia - bez kopiowania kluczy
+        Iterator<Map.Entry<UUID, ViewerState>> viewers = playerViews.entrySet().iterator();
+        while (viewers.hasNext()) {
+            Map.Entry<UUID, ViewerState> viewer = viewers.next();
+            UUID uuid = viewer.getKey();
             Player player = Bukkit.getPlayer(uuid);
             if (player != null && player.isOnline()) {
-                Integer page = playerPages.getOrDefault(uuid, 0);
-                refreshGUI(player, page);
+                int page = playerPages.getOrDefault(uuid, 0);
+                int slots = refreshGUI(player, viewer.getValue(), page, dirtyFrom);
+                if (slots >= 0) {
+                    refreshed++;
+                    written += slots;
+                } else {
+                    // Gracz zamknął GUI (np. ESC) - nie ma czego odświeżać
+                    viewers.remove();
+                    playerPages.remove(uuid);
+                }
             } else {
                 // Usuń offline graczy
+                viewers.remove();
                 playerPages.remove(uuid);
-                playerInventories.remove(uuid);
+                playerQueries.remove(uuid);
+                playerSorts.remove(uuid);
+                playerCategories.remove(uuid);
             }
         }
+
+        plugin.getMetrics().recordRefresh(refreshed, written, System.nanoTime() - start);
     }
 
     /**
      * Odświeża GUI dla konkretnego gracza
      */
     public void refreshGUI(Player player, int page) {
+        if (refreshGUI(player, playerViews.get(player.getUniqueId()), page, 0) < 0) {
+            // Gracz zamknął GUI (np. ESC) - nie ma czego odświeżać
+            playerPages.remove(player.getUniqueId());
+            playerViews.remove(player.getUniqueId());
+        }
+    }
+
+    /**
+     * Odświeża GUI dla konkretnego gracza, pomijając przedmioty przed indeksem dirtyFrom
+     * @return ilość zmienionych slotów lub -1, jeśli gracz nie ma już otwartego GUI
+     */
+    private int refreshGUI(Player player, ViewerState view, int page, int dirtyFrom) {
         Inventory current = player.getOpenInventory().getTopInventory();
 
         // Sprawdź, czy gracz ma otwarte nasze GUI
-        if (current.getHolder() instanceof AbyssGUI) {
-            // Sprawdź czy strona jest nadal ważna
-            AbyssManager manager = plugin.getAbyssManager();
-            int totalPages = manager.getTotalPages(itemsPerPage);
-
-            // Jeśli obecna strona nie istnieje (np. po zebraniu itemów), przejdź do ostatniej ważnej
-            if (page >= totalPages) {
-                page = Math.max(0, totalPages - 1);
-                if (plugin.getConfig().getBoolean("debug", false)) {
-                    plugin.getLogger().info("Gracz " + player.getName() + " przeniesiony z nieistniejącej strony na stronę " + page);
-                }
-            }
-
-            Inventory newInventory = createInventory(player, page);
+        if (!(current.getHolder() instanceof AbyssGUI) || view == null || view.inventory != current) {
+            return -1;
+        }
 
-            // Aktualizuj zawartość obecnego inventory
-            current.clear();
-            current.setContents(newInventory.getContents());
+        // Ta sama strona przy tej samej wersji magazynu - wyniki, posortowane widoki i liczba stron też są te same
+        if (page == view.page && view.version == plugin.getAbyssManager().getVersion()) {
+            return 0;
+        }
 
-            playerPages.put(player.getUniqueId(), page);
-            playerInventories.put(player.getUniqueId(), current);
+        // Jeśli obecna strona nie istnieje (np. po zabraniu itemów), przejdź do ostatniej ważnej
+        int validPage = clampPage(page, view);
+        if (validPage != page && plugin.getSettings().debug()) {
+            plugin.getLogger().info("Gracz " + player.getName() + " przeniesiony z nieistniejącej strony na stronę " + validPage);
         }
+
+        int written = render(view, validPage, dirtyFrom);
+        playerPages.put(player.getUniqueId(), validPage);
+        return written;
     }
 
     /**
      * Zmienia stronę dla gracza
+     * Jeśli GUI jest otwarte, strona jest podmieniana w miejscu, bez ponownego otwierania okna
      */
     public void changePage(Player player, int newPage) {
-        openGUI(player, newPage);
+        ViewerState view = playerViews.get(player.getUniqueId());
+        if (view == null || player.getOpenInventory().getTopInventory() != view.inventory) {
+            openGUI(player, newPage);
+            return;
+        }
+
+        int page = clampPage(newPage, view);
+        playerPages.put(player.getUniqueId(), page);
+        render(view, page, 0);
     }
 
     /**
@@ -293,6 +683,18 @@ public class AbyssGUI implements InventoryHolder {
         return playerPages.getOrDefault(player.getUniqueId(), 0);
     }
 
+    /**
+     * Pobiera identyfikator wpisu pokazywanego graczowi w danym slocie
+     * @return identyfikator lub -1, jeśli slot jest pusty albo gracz nie ma otwartego GUI
+     */
+    public long getEntryId(Player player, int slot) {
+        ViewerState view = playerViews.get(player.getUniqueId());
+        if (view == null || slot < 0 || slot >= itemsPerPage) {
+            return -1;
+        }
+        return view.entryIds[slot];
+    }
+
     /**
      * Sprawdza, czy slot jest w obszarze nawigacji
      */
@@ -304,49 +706,88 @@ public class AbyssGUI implements InventoryHolder {
      * Sprawdza, czy slot jest przyciskiem nawigacji
      */
     public boolean isNavigationButton(int slot) {
-        int navStart = size - 9;
-        int relativeSlot = slot - navStart;
-
-        return (plugin.getConfig().getBoolean("navigation.previous-page.enabled", true) &&
-                relativeSlot == plugin.getConfig().getInt("navigation.previous-page.slot", 0)) ||
-               (plugin.getConfig().getBoolean("navigation.next-page.enabled", true) &&
-                relativeSlot == plugin.getConfig().getInt("navigation.next-page.slot", 8)) ||
-               (plugin.getConfig().getBoolean("navigation.close.enabled", true) &&
-                relativeSlot == plugin.getConfig().getInt("navigation.close.slot", 5)) ||
-               (plugin.getConfig().getBoolean("navigation.info.enabled", true) &&
-                relativeSlot == plugin.getConfig().getInt("navigation.info.slot", 3));
+        return plugin.getSettings().navigationAction(slot - itemsPerPage) != NavigationAction.NONE;
     }
 
     /**
      * Obsługuje kliknięcie w przycisk nawigacji
+     * @param rightClick prawy przycisk (sortowanie i zakładki przełączają się wtedy wstecz)
      */
-    public void handleNavigationClick(Player player, int slot) {
-        int navStart = size - 9;
-        int relativeSlot = slot - navStart;
+    public void handleNavigationClick(Player player, int slot, boolean rightClick) {
+        NavigationAction action = plugin.getSettings().navigationAction(slot - itemsPerPage);
         int currentPage = getCurrentPage(player);
-        AbyssManager manager = plugin.getAbyssManager();
-        int totalPages = manager.getTotalPages(itemsPerPage);
+        ViewerState view = playerViews.get(player.getUniqueId());
+        int totalPages = view != null ? getTotalPages(view) : plugin.getAbyssManager().getTotalPages(itemsPerPage);
 
         // Sprawdź czy obecna strona jest nadal ważna (mogła się zmienić podczas przeglądania)
         if (currentPage >= totalPages) {
             currentPage = Math.max(0, totalPages - 1);
         }
 
-        if (relativeSlot == plugin.getConfig().getInt("navigation.previous-page.slot", 0)) {
-            // Poprzednia strona
-            if (currentPage > 0) {
-                changePage(player, currentPage - 1);
+        switch (action) {
+            case PREVIOUS_PAGE -> {
+                if (currentPage > 0) {
+                    changePage(player, currentPage - 1);
+                }
+            }
+            case NEXT_PAGE -> {
+                if (currentPage < totalPages - 1) {
+                    changePage(player, currentPage + 1);
+                }
+            }
+            case CLOSE -> closeGUI(player);
+            case SORT -> {
+                SortMode sort = getSortMode(player);
+                setSortMode(player, rightClick ? sort.previous() : sort.next());
+            }
+            case DEPOSIT -> depositInventory(player, rightClick);
+            case CATEGORY -> {
+                // Zakładki po kolei: cały magazyn (-1), potem kategorie z configu
+                int tabs = plugin.getSettings().categories().size() + 1;
+                int tab = getCategory(player) + 1;
+                tab = rightClick ? (tab + tabs - 1) % tabs : (tab + 1) % tabs;
+                setCategory(player, tab - 1);
             }
-        } else if (relativeSlot == plugin.getConfig().getInt("navigation.next-page.slot", 8)) {
-            // Następna strona
-            if (currentPage < totalPages - 1) {
-                changePage(player, currentPage + 1);
+            default -> {
+                // Przycisk info - nic nie robi przy kliknięciu
             }
-        } else if (relativeSlot == plugin.getConfig().getInt("navigation.close.slot", 5)) {
-            // Zamknij
-            closeGUI(player);
         }
-        // Przycisk info - nic nie robi przy kliknięciu
+    }
+
+    /**
+     * Wrzuca do magazynu cały ekwipunek gracza (bez zbroi i drugiej ręki) albo sam pasek szybkiego wyboru
+     * Wszystkie stacki trafiają do kolejki przyjęć (zapis paczką i jedno odświeżenie GUI),
+     * a ekwipunek jest zmieniany jednym zapisem
+     * @param hotbarOnly tylko pasek szybkiego wyboru (sloty 0-8)
+     */
+    public void depositInventory(Player player, boolean hotbarOnly) {
+        PlayerInventory inventory = player.getInventory();
+        ItemStack[] contents = inventory.getStorageContents();
+        int slots = hotbarOnly ? Math.min(9, contents.length) : contents.length;
+
+        List<ItemStack> deposited = new ArrayList<>();
+        int amount = 0;
+        for (int i = 0; i < slots; i++) {
+            ItemStack item = contents[i];
+            if (item == null || item.getType().isAir()) {
+                continue;
+            }
+            // Klon zachowuje wszystkie NBT i metadata (custom itemy)
+            deposited.add(item.clone());
+            amount += item.getAmount();
+            contents[i] = null;
+        }
+
+        if (deposited.isEmpty()) {
+            player.sendMessage(plugin.getMessageManager().getMessage("gui.nothing-to-deposit"));
+            return;
+        }
+
+        plugin.getAbyssManager().submitAll(deposited);
+        inventory.setStorageContents(contents);
+
+        player.sendMessage(plugin.getMessageManager().getMessage("gui.items-deposited",
+                "amount", String.valueOf(amount)));
     }
 
     /**
@@ -355,14 +796,14 @@ public class AbyssGUI implements InventoryHolder {
     public void closeGUI(Player player) {
         player.closeInventory();
         playerPages.remove(player.getUniqueId());
-        playerInventories.remove(player.getUniqueId());
+        playerViews.remove(player.getUniqueId());
     }
 
     /**
      * Zamyka GUI dla wszystkich graczy
      */
     public void closeAllGUIs() {
-        Set<UUID> viewers = new HashSet<>(playerInventories.keySet());
+        Set<UUID> viewers = new HashSet<>(playerViews.keySet());
 
         for (UUID uuid : viewers) {
             Player player = Bukkit.getPlayer(uuid);
@@ -372,14 +813,17 @@ public class AbyssGUI implements InventoryHolder {
         }
 
         playerPages.clear();
-        playerInventories.clear();
+        playerViews.clear();
+        playerQueries.clear();
+        playerSorts.clear();
+        playerCategories.clear();
     }
 
     /**
      * Sprawdza, czy gracz ma otwarte GUI
      */
     public boolean hasOpenGUI(Player player) {
-        return playerInventories.containsKey(player.getUniqueId());
+        return playerViews.containsKey(player.getUniqueId());
     }
 
     /**
@@ -394,4 +838,61 @@ public class AbyssGUI implements InventoryHolder {
         // Zwraca pusty inventory - każdy gracz ma swój własny
         return Bukkit.createInventory(this, size);
     }
+
+    /**
+     * Szablon paska nawigacji - nie jest zmieniany po zbudowaniu (reload tworzy nowy)
+     * Przechowywane ItemStacki nie są modyfikowane - inventory i tak trzyma własne kopie
+     */
+    private static class NavigationTemplate {
+        private ItemStack filler;
+        private int previousSlot;
+        private ItemStack previousButton;
+        private int nextSlot;
+        private ItemStack nextButton;
+        private int closeSlot;
+        private ItemStack closeButton;
+        private int sortSlot;
+        // Przyciski sortowania (indeks = SortMode.ordinal(), null = przycisk wyłączony)
+        private ItemStack[] sortButtons;
+        private int categorySlot;
+        // Przyciski zakładek (indeks = kategoria + 1, null = przycisk wyłączony)
+        private ItemStack[] categoryButtons;
+        private int depositSlot;
+        private ItemStack depositButton;
+        private int infoSlot;
+        private Material infoMaterial;
+        private Component infoName;
+        private String infoLoreKey;
+    }
+
+    /**
+     * Stan GUI jednego gracza - co zostało wyrenderowane w którym slocie
+     */
+    private static class ViewerState {
+        private final Inventory inventory;
+        private final ItemStack[] slots;
+        private final long[] entryIds;
+        private final int[] revisions;
+        // Wyszukiwanie, którego wynik pokazuje okno (null = cały magazyn)
+        private final SearchQuery query;
+        private SortMode sort;
+        // Zakładka okna (-1 = cały magazyn)
+        private int category;
+        private int page = -1;
+        private int totalPages = -1;
+        private int itemCount = -1;
+        // Wersja magazynu, przy której wyrenderowano stronę (-1 = do wyrenderowania)
+        private long version = -1;
+
+        ViewerState(Inventory inventory, SearchQuery query, SortMode sort, int category) {
+            this.inventory = inventory;
+            this.query = query;
+            this.sort = sort;
+            this.category = category;
+            this.slots = new ItemStack[inventory.getSize()];
+            this.entryIds = new long[inventory.getSize() - 9];
+            this.revisions = new int[inventory.getSize() - 9];
+            Arrays.fill(entryIds, -1);
+        }
+    }
 }
@@ -1,22 +1,995 @@
 package dev.tremeq.abyss;
 
+import dev.tremeq.abyss.storage.AbyssEntry;
+import dev.tremeq.abyss.storage.ColdTier;
+import dev.tremeq.abyss.storage.EntryList;
+import dev.tremeq.abyss.storage.EvictionIndex;
+import dev.tremeq.abyss.storage.ExpiryWheel;
+import dev.tremeq.abyss.storage.IngestQueue;
+import dev.tremeq.abyss.storage.ItemKey;
+import dev.tremeq.abyss.storage.ItemPrototype;
+import dev.tremeq.abyss.storage.PageSnapshot;
+import dev.tremeq.abyss.storage.PrototypeTable;
+import dev.tremeq.abyss.storage.SearchIndex;
+import dev.tremeq.abyss.storage.SearchQuery;
+import dev.tremeq.abyss.storage.SearchResult;
+import dev.tremeq.abyss.storage.SearchTerms;
+import dev.tremeq.abyss.storage.SortIndex;
+import dev.tremeq.abyss.storage.SortMode;
+import dev.tremeq.abyss.storage.StorageEngine;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
 
 /**
  * Menedżer globalnego magazynu Otchłani
  * Zarządza wszystkimi przedmiotami w publicznej "skrzyni"
+ *
+ * Zapisy idą pod jedną blokadą i kończą się publikacją niezmiennej kopii magazynu.
+ * Odczyty (GUI, zapis na dysk, inne wątki) czytają ostatnią kopię bez blokowania.
  */
 public class AbyssManager {
+    // Takt koła wygasania - tyle samo co interwał taska wygasania
+    private static final long EXPIRY_TICK_MILLIS = 1000L;
+    // Budżet czasu jednego przebiegu przenoszenia do zimnej warstwy
+    private static final long DEMOTE_BUDGET_NANOS = 2_000_000L;
+    // Ile wpisów z dysku indeksujemy w tle przed jednym wejściem pod blokadę
+    private static final int INDEX_BATCH = 4096;
+
     private final Abyss plugin;
-    private final List<ItemStack> storage;
+    // Wpisy posortowane po stałych identyfikatorach; obiekt listy jest blokadą zapisów
+    private final EntryList storage;
+    // Niezmienna, wersjonowana kopia magazynu i partycji publikowana po każdym zapisie - odczyty nie biorą blokady
+    private volatile PageSnapshot published;
+    // Niepełne wpisy, do których można dołączyć podobne przedmioty (tryb łączenia), i odwrotnie - klucz wpisu
+    private final Map<ItemKey, AbyssEntry> openEntries;
+    private final Map<AbyssEntry, ItemKey> openKeys = new HashMap<>();
+    // Wspólne wzorce przedmiotów - wpisy trzymają referencję do wzorca i ilość zamiast własnej mety
+    private PrototypeTable prototypes = new PrototypeTable();
+    private StorageEngine storageEngine;
+    // Kandydaci do usunięcia przy przekroczeniu limitu (null, gdy limity są wyłączone)
+    private EvictionIndex evictionIndex;
+    // Terminy wygaśnięcia wpisów (null, gdy wygasanie jest wyłączone)
+    private ExpiryWheel expiryWheel;
+    // Nieużywane przedmioty trzymane jako bajty poza stertą (null, gdy warstwa jest wyłączona)
+    private ColdTier coldTier;
+    // Indeks wyszukiwania (null, gdy wyszukiwanie jest wyłączone)
+    private SearchIndex searchIndex;
+    // Posortowane widoki magazynu - tworzone przy pierwszym użyciu trybu sortowania
+    private final Map<SortMode, SortIndex> sortIndexes = new EnumMap<>(SortMode.class);
+    // Kategorie (null = wyłączone) i partycje magazynu - jedna lista wpisów na kategorię
+    private CategoryRules categoryRules;
+    private EntryList[] partitions = new EntryList[0];
+    // Kategoria, w której partycji leży wpis (brak = wpis bez kategorii)
+    private final Map<AbyssEntry, Integer> entryCategories = new HashMap<>();
+    // Posortowane widoki kategorii (indeks tablicy = kategoria)
+    private final Map<SortMode, SortIndex[]> categorySortIndexes = new EnumMap<>(SortMode.class);
+    // Widoki budowane w tle - do czasu publikacji GUI pokazuje kolejność magazynu
+    private final List<SortBuild> sortBuilds = new ArrayList<>();
+    // Zmieniana przy wyczyszczeniu magazynu i przebudowie kategorii - widok zbudowany w tle jest wtedy porzucany
+    private int sortGeneration;
+    // Wpisy z dysku czekające na odczytanie w tle (dla wyszukiwania i sortowania wymagają deserializacji)
+    private List<AbyssEntry> pendingIndex = new ArrayList<>();
+    private boolean indexerRunning;
+    // Zmieniana przy wyczyszczeniu magazynu - odczyt w tle dla starych wpisów jest wtedy porzucany
+    private int indexGeneration;
+    // Szacunkowy rozmiar wszystkich wpisów w bajtach
+    private long storedBytes;
+    private long nextId = 1;
+    // Najniższy indeks zmieniony od ostatniego odświeżenia GUI
+    private int firstDirtyIndex = Integer.MAX_VALUE;
+    // Przedmioty zgłoszone przez zbieranie i kliknięcia - zapisywane do magazynu jedną paczką na tick
+    private final IngestQueue<ItemStack> ingestQueue;
+    // Lista na paczkę z kolejki (używana tylko przez wątek opróżniający)
+    private final List<ItemStack> ingestBatch = new ArrayList<>();
 
     public AbyssManager(Abyss plugin) {
         this.plugin = plugin;
-        this.storage = Collections.synchronizedList(new ArrayList<>());
+        this.storage = new EntryList();
+        this.openEntries = new HashMap<>();
+        this.published = new PageSnapshot(0, storage.snapshot(), new EntryList[0], 0, false, false);
+        this.ingestQueue = new IngestQueue<>(plugin.getSettings().ingestBufferSize());
+
+        if (plugin.getSettings().storageEnabled()) {
+            loadFromDisk();
+        }
+        reloadSettings();
+    }
+
+    /**
+     * Stosuje limity i czasy życia z bieżących ustawień (przy starcie i po /abyssreload)
+     * Zmiana polityki buduje kolejkę usuwania od nowa; nadmiarowe wpisy są usuwane od razu,
+     * a przeterminowane przy najbliższym takcie wygasania
+     */
+    public void reloadSettings() {
+        AbyssSettings settings = plugin.getSettings();
+        boolean limited = settings.maxEntries() > 0 || settings.maxBytes() > 0;
+
+        synchronized (storage) {
+            if (!limited) {
+                evictionIndex = null;
+            } else if (evictionIndex == null || evictionIndex.getPolicy() != settings.evictionPolicy()) {
+                evictionIndex = new EvictionIndex(settings.evictionPolicy());
+                evictionIndex.rebuild(storage.snapshot().asList());
+            }
+
+            // Czasy życia mogły się zmienić - terminy wszystkich wpisów liczone od nowa
+            if (settings.expiry().isEnabled()) {
+                expiryWheel = new ExpiryWheel(EXPIRY_TICK_MILLIS, System.currentTimeMillis());
+                for (AbyssEntry entry : storage.snapshot().asList()) {
+                    scheduleExpiry(entry);
+                }
+            } else {
+                expiryWheel = null;
+            }
+
+            if (settings.coldTierEnabled()) {
+                if (coldTier == null) {
+                    coldTier = new ColdTier(settings.coldTierIdleMillis(), prototypes);
+                    long now = System.currentTimeMillis();
+                    for (AbyssEntry entry : storage.snapshot().asList()) {
+                        coldTier.track(entry, now);
+                    }
+                } else {
+                    coldTier.setIdleMillis(settings.coldTierIdleMillis());
+                }
+            } else if (coldTier != null) {
+                // Wpisy zostają przy swoich bajtach, ale przestają zgłaszać deserializację
+                for (AbyssEntry entry : storage.snapshot().asList()) {
+                    coldTier.release(entry);
+                }
+                coldTier = null;
+            }
+
+            if (!settings.searchEnabled()) {
+                searchIndex = null;
+            } else if (searchIndex == null) {
+                searchIndex = new SearchIndex(this::categoryOf);
+                for (AbyssEntry entry : searchIndex.rebuild(storage.snapshot().asList())) {
+                    // Nieodczytane wpisy z dysku już czekają w kolejce - wracają tylko te odczytane wcześniej
+                    if (entry.isResolved()) {
+                        pendingIndex.add(entry);
+                    }
+                }
+                startIndexer();
+            }
+
+            // Reguły mogły się zmienić - kategorie wszystkich wpisów przypisywane od nowa
+            rebuildPartitions(settings.categories().isEnabled() ? settings.categories() : null);
+            commit();
+        }
+    }
+
+    /**
+     * Wczytuje magazyn z dysku i uruchamia zapis zmian w tle
+     */
+    private void loadFromDisk() {
+        StorageEngine engine = new StorageEngine(plugin,
+                new File(plugin.getDataFolder(), "data"),
+                plugin.getSettings().compactThreshold(),
+                plugin.getSettings().fsync());
+
+        long start = System.nanoTime();
+        try {
+            List<AbyssEntry> restored = engine.load();
+            // Lista magazynu wymaga rosnących identyfikatorów (dla posortowanych danych to jedno przejście)
+            restored.sort(Comparator.comparingLong(AbyssEntry::getId));
+            synchronized (storage) {
+                for (AbyssEntry entry : restored) {
+                    addEntry(entry);
+                }
+                publish();
+                nextId = engine.getLastId() + 1;
+            }
+
+            engine.start();
+            this.storageEngine = engine;
+
+            plugin.getLogger().info("Wczytano " + restored.size() + " przedmiotów Otchłani z dysku ("
+                    + (System.nanoTime() - start) / 1_000_000 + " ms)");
+        } catch (IOException e) {
+            // Nie zapisujemy nic, żeby nie nadpisać danych, których nie udało się odczytać
+            plugin.getLogger().log(Level.SEVERE, "Nie udało się wczytać magazynu Otchłani - zapis na dysk wyłączony", e);
+        }
+    }
+
+    /**
+     * Zapisuje końcowy stan magazynu i zatrzymuje zapis w tle
+     */
+    public void shutdown() {
+        // Zgłoszone, a jeszcze niezapisane przedmioty nie mogą przepaść - jedna paczka to najwyżej
+        // pojemność pierścienia, więc opróżniamy do skutku (bez odświeżania GUI, harmonogram już stoi)
+        while (drainBatch() > 0) {
+            // kolejne paczki
+        }
+
+        if (storageEngine == null) {
+            return;
+        }
+
+        synchronized (storage) {
+            storageEngine.stop(storage.snapshot().asList());
+        }
+        storageEngine.awaitShutdown();
+        storageEngine = null;
+    }
+
+    /**
+     * Dodaje przedmiot do magazynu (wywoływane pod blokadą)
+     * W trybie łączenia dopełnia niepełny podobny wpis do maksymalnego rozmiaru stacka,
+     * a resztę dzieli na nowe wpisy - bez przeszukiwania listy, przez indeks kluczy
+     */
+    private void store(ItemStack item, boolean merge) {
+        int maxStack = item.getMaxStackSize();
+        ItemKey key = ItemKey.of(item);
+        if (!merge || maxStack <= 1) {
+            addEntry(newEntry(key, item.getAmount()));
+            return;
+        }
+
+        int remaining = item.getAmount();
+
+        // Dopełnij otwarty wpis z tym samym kluczem
+        AbyssEntry open = openEntries.get(key);
+        if (open != null) {
+            int current = open.getAmount();
+            int merged = Math.min(remaining, maxStack - current);
+            if (merged > 0) {
+                markDirty(storage.indexOf(open.getId()));
+                replaceAmount(open, current + merged);
+                remaining -= merged;
+            }
+            if (current + merged >= maxStack) {
+                closeEntry(open);
+            }
+        }
+
+        // Reszta trafia do nowych wpisów, ostatni niepełny zostaje otwarty
+        while (remaining > 0) {
+            int amount = Math.min(remaining, maxStack);
+            AbyssEntry entry = newEntry(key, amount);
+            addEntry(entry);
+            remaining -= amount;
+
+            if (amount < maxStack) {
+                openEntries.put(key, entry);
+                openKeys.put(entry, key);
+            }
+        }
+    }
+
+    /**
+     * Tworzy nowy wpis ze wspólnego wzorca i zapisuje go w dzienniku (wywoływane pod blokadą)
+     */
+    private AbyssEntry newEntry(ItemKey key, int amount) {
+        AbyssEntry entry = new AbyssEntry(nextId++, prototypes.acquire(key), amount);
+        logPut(entry);
+        return entry;
+    }
+
+    /**
+     * Dodaje wpis na koniec magazynu (wywoływane pod blokadą)
+     */
+    private void addEntry(AbyssEntry entry) {
+        markDirty(storage.size());
+        storage.add(entry);
+        storedBytes += entry.getEstimatedSize();
+        if (evictionIndex != null) {
+            evictionIndex.add(entry);
+        }
+        if (expiryWheel != null) {
+            scheduleExpiry(entry);
+        }
+        if (coldTier != null) {
+            coldTier.track(entry, System.currentTimeMillis());
+        }
+        if (!entry.isLoaded()) {
+            // Wpis z dysku - indeksy i kategoria po odczytaniu w tle
+            pendingIndex.add(entry);
+            return;
+        }
+        if (categoryRules != null) {
+            assignCategory(entry);
+        }
+        if (searchIndex != null) {
+            searchIndex.add(entry);
+        }
+        for (SortIndex index : sortIndexes.values()) {
+            index.add(entry);
+        }
+        touchSortBuilds(entry);
+    }
+
+    /**
+     * Wyznacza termin wygaśnięcia wpisu i dodaje go do koła (wywoływane pod blokadą)
+     * Wpis jeszcze nie zdeserializowany dostaje najkrótszy skonfigurowany czas życia jako dolne
+     * ograniczenie - prawdziwy termin jest liczony dopiero, gdy ten minie
+     */
+    private void scheduleExpiry(AbyssEntry entry) {
+        ExpiryRules rules = plugin.getSettings().expiry();
+        long ttl = entry.isLoaded() ? rules.ttlMillis(entry.getType()) : rules.minTtlMillis();
+        expiryWheel.schedule(entry, ttl > 0 ? entry.getCreatedAt() + ttl : 0);
+    }
+
+    /**
+     * Podmienia przedmiot we wpisie i zapisuje to w dzienniku (wywoływane pod blokadą)
+     */
+    private void replaceItem(AbyssEntry entry, ItemStack item) {
+        ItemPrototype previous = entry.getPrototype();
+        storedBytes -= entry.getEstimatedSize();
+        if (coldTier != null) {
+            coldTier.replacing(entry, System.currentTimeMillis());
+        }
+        entry.setPrototype(prototypes.acquire(item), item.getAmount());
+        storedBytes += entry.getEstimatedSize();
+        if (previous != null) {
+            prototypes.release(previous);
+        }
+        if (searchIndex != null) {
+            searchIndex.update(entry);
+        }
+        updateSorted(entry);
+        logPut(entry);
+
+        // Inny materiał może mieć inny czas życia; stary kubełek zostanie pominięty jako nieaktualny
+        if (expiryWheel != null) {
+            long ttl = plugin.getSettings().expiry().ttlMillis(item.getType());
+            long expiresAt = ttl > 0 ? entry.getCreatedAt() + ttl : 0;
+            if (expiresAt != expiryWheel.getExpiresAt(entry)) {
+                expiryWheel.schedule(entry, expiresAt);
+            }
+        }
+    }
+
+    /**
+     * Zmienia ilość przedmiotu we wpisie i zapisuje to w dzienniku (wywoływane pod blokadą)
+     * Wpis ze wzorca zmienia tylko licznik - bez kopiowania mety
+     */
+    private void replaceAmount(AbyssEntry entry, int amount) {
+        if (entry.getPrototype() == null) {
+            replaceItem(entry, entry.getItem().asQuantity(amount));
+            return;
+        }
+        entry.setAmount(amount);
+        updateSorted(entry);
+        if (searchIndex != null) {
+            // Terminy się nie zmieniają, ale zapamiętane wyniki trzymają też kolejność po ilości i materiale
+            searchIndex.clearCache();
+        }
+        logPut(entry);
+    }
+
+    /**
+     * Przesuwa wpis w posortowanych widokach po zmianie przedmiotu lub ilości
+     */
+    private void updateSorted(AbyssEntry entry) {
+        for (SortIndex index : sortIndexes.values()) {
+            index.update(entry);
+        }
+        touchSortBuilds(entry);
+        if (categoryRules == null) {
+            return;
+        }
+
+        int category = categoryRules.categoryOf(entry.getType());
+        if (category != categoryOf(entry)) {
+            // Inny materiał - wpis przechodzi do innej partycji
+            unassignCategory(entry);
+            assignCategory(entry);
+        } else {
+            for (SortIndex[] indexes : categorySortIndexes.values()) {
+                indexes[category].update(entry);
+            }
+        }
+    }
+
+    /**
+     * Przypisuje wpisowi kategorię i dodaje go do jej partycji (wpis musi mieć znany materiał)
+     */
+    private void assignCategory(AbyssEntry entry) {
+        int category = categoryRules.categoryOf(entry.getType());
+        entryCategories.put(entry, category);
+        // Zwykle dopisanie na końcu; wpisy odczytane z dysku w tle trafiają w środek
+        partitions[category].insert(entry);
+        for (SortIndex[] indexes : categorySortIndexes.values()) {
+            indexes[category].add(entry);
+        }
+    }
+
+    /**
+     * Usuwa wpis z partycji jego kategorii
+     */
+    private void unassignCategory(AbyssEntry entry) {
+        Integer category = entryCategories.remove(entry);
+        if (category == null) {
+            return;
+        }
+        partitions[category].removeById(entry.getId());
+        for (SortIndex[] indexes : categorySortIndexes.values()) {
+            indexes[category].remove(entry);
+        }
+    }
+
+    /**
+     * Pobiera kategorię wpisu (wywoływane pod blokadą)
+     * @return indeks kategorii lub -1, jeśli wpis nie ma jeszcze kategorii
+     */
+    private int categoryOf(AbyssEntry entry) {
+        Integer category = entryCategories.get(entry);
+        return category != null ? category : -1;
+    }
+
+    /**
+     * Buduje partycje kategorii od nowa (wywoływane pod blokadą)
+     * Wpisy z dysku jeszcze nieodczytane dostaną kategorię po odczytaniu w tle
+     * @param rules reguły lub null, jeśli kategorie są wyłączone
+     */
+    private void rebuildPartitions(CategoryRules rules) {
+        for (SortIndex[] indexes : categorySortIndexes.values()) {
+            for (SortIndex index : indexes) {
+                index.clear();
+            }
+        }
+        categorySortIndexes.clear();
+        sortGeneration++;
+
+        categoryRules = rules;
+        partitions = new EntryList[rules != null ? rules.size() : 0];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new EntryList();
+        }
+
+        entryCategories.clear();
+        for (AbyssEntry entry : storage.snapshot().asList()) {
+            if (rules != null && entry.isResolved()) {
+                assignCategory(entry);
+            }
+        }
+        if (searchIndex != null) {
+            // Wyniki wyszukiwania w zakładce zależą od kategorii wpisów
+            searchIndex.clearCache();
+        }
+        startIndexer();
+    }
+
+    /**
+     * Usuwa wpis z podanego indeksu i zapisuje to w dzienniku (wywoływane pod blokadą)
+     */
+    private AbyssEntry removeEntry(int index) {
+        markDirty(index);
+        AbyssEntry entry = storage.remove(index);
+        forgetEntry(entry);
+        return entry;
+    }
+
+    /**
+     * Usuwa wpis o podanym identyfikatorze i zapisuje to w dzienniku (wywoływane pod blokadą)
+     * @return usunięty wpis lub null, jeśli już go nie ma
+     */
+    private AbyssEntry removeEntryById(long id) {
+        int index = storage.indexOf(id);
+        if (index < 0) {
+            return null;
+        }
+        return removeEntry(index);
+    }
+
+    /**
+     * Wyłącza usunięty wpis z łączenia i zapisuje usunięcie w dzienniku (wywoływane pod blokadą)
+     */
+    private void forgetEntry(AbyssEntry entry) {
+        entry.markRemoved();
+        closeEntry(entry);
+        storedBytes -= entry.getEstimatedSize();
+        if (evictionIndex != null) {
+            evictionIndex.remove(entry);
+        }
+        if (expiryWheel != null) {
+            expiryWheel.remove(entry);
+        }
+        if (coldTier != null) {
+            coldTier.release(entry);
+        }
+        ItemPrototype prototype = entry.getPrototype();
+        if (prototype != null) {
+            prototypes.release(prototype);
+        }
+        if (searchIndex != null) {
+            searchIndex.remove(entry);
+        }
+        for (SortIndex index : sortIndexes.values()) {
+            index.remove(entry);
+        }
+        if (categoryRules != null) {
+            unassignCategory(entry);
+        }
+        touchSortBuilds(entry);
+        if (storageEngine != null) {
+            storageEngine.logRemove(entry.getId());
+        }
+    }
+
+    /**
+     * Wyłącza wpis z łączenia (wywoływane pod blokadą)
+     */
+    private void closeEntry(AbyssEntry entry) {
+        ItemKey key = openKeys.remove(entry);
+        if (key != null) {
+            openEntries.remove(key, entry);
+        }
+    }
+
+    /**
+     * Zapisuje czas oczekiwania na blokadę magazynu (wywoływane zaraz po jej wzięciu)
+     * @param waitStart System.nanoTime() sprzed wejścia do bloku synchronized
+     */
+    private void recordLockWait(long waitStart) {
+        plugin.getMetrics().recordLockWait(System.nanoTime() - waitStart);
+    }
+
+    /**
+     * Zapamiętuje zmianę na danej pozycji (wywoływane pod blokadą)
+     * Usunięcie przesuwa pozycje wszystkich dalszych wpisów, więc wystarczy najniższy indeks
+     */
+    private void markDirty(int index) {
+        if (index < firstDirtyIndex) {
+            firstDirtyIndex = index;
+        }
+    }
+
+    /**
+     * Pobiera najniższy indeks zmieniony od ostatniego wywołania i zeruje znacznik
+     * Wszystkie wpisy przed tym indeksem są takie same jak przy poprzednim odświeżeniu
+     * @return indeks lub Integer.MAX_VALUE, jeśli nic się nie zmieniło
+     */
+    public int consumeDirtyIndex() {
+        long waitStart = System.nanoTime();
+        synchronized (storage) {
+            recordLockWait(waitStart);
+            int index = firstDirtyIndex;
+            firstDirtyIndex = Integer.MAX_VALUE;
+            return index;
+        }
+    }
+
+    private void logPut(AbyssEntry entry) {
+        if (storageEngine != null) {
+            storageEngine.logPut(entry);
+        }
+    }
+
+    /**
+     * Usuwa wpisy ponad limit ilości lub rozmiaru, w kolejności wybranej polityki (wywoływane pod blokadą)
+     */
+    private void enforceCapacity() {
+        if (evictionIndex == null) {
+            return;
+        }
+
+        AbyssSettings settings = plugin.getSettings();
+        int evicted = 0;
+        while (isOverCapacity(settings)) {
+            AbyssEntry victim = evictionIndex.nextVictim();
+            if (victim == null) {
+                break;
+            }
+            removeEntryById(victim.getId());
+            plugin.getMetrics().recordEviction(victim.getEstimatedSize());
+            evicted++;
+        }
+
+        // Usunięte wpisy zalegające w kolejkach - przebudowa zamortyzowana na wiele usunięć
+        if (evictionIndex.needsRebuild()) {
+            evictionIndex.rebuild(storage.snapshot().asList());
+        }
+
+        if (evicted > 0 && settings.debug()) {
+            plugin.getLogger().info("Usunięto " + evicted + " przedmiotów ponad limit Otchłani (polityka "
+                    + evictionIndex.getPolicy() + ")");
+        }
+    }
+
+    private boolean isOverCapacity(AbyssSettings settings) {
+        return (settings.maxEntries() > 0 && storage.size() > settings.maxEntries())
+                || (settings.maxBytes() > 0 && storedBytes > settings.maxBytes());
+    }
+
+    /**
+     * Publikuje bieżący stan magazynu dla czytelników z nową wersją (wywoływane pod blokadą)
+     */
+    private void publish() {
+        EntryList[] views = new EntryList[partitions.length];
+        for (int i = 0; i < views.length; i++) {
+            views[i] = partitions[i].snapshot();
+        }
+        published = new PageSnapshot(published.version() + 1, storage.snapshot(), views,
+                storedBytes, searchIndex != null, indexerRunning || !pendingIndex.isEmpty());
+    }
+
+    /**
+     * Pobiera ostatnio opublikowany stan magazynu (bez blokady)
+     */
+    public PageSnapshot getSnapshot() {
+        return published;
+    }
+
+    /**
+     * Pobiera wersję opublikowanego stanu - zmienia się przy każdej zmianie magazynu,
+     * także posortowanych widoków i wyników wyszukiwania
+     */
+    public long getVersion() {
+        return published.version();
+    }
+
+    /**
+     * Kończy zapis: publikuje nowy stan i zleca kompaktację dziennika, jeśli urósł za bardzo
+     * (wywoływane pod blokadą)
+     */
+    private void commit() {
+        enforceCapacity();
+        publish();
+        if (storageEngine != null && storageEngine.shouldCompact()) {
+            // Wątek zapisu dostaje postać wpisów z tej chwili - serializuje ją sam, bez blokady
+            storageEngine.compact(published.entries().asList());
+        }
+    }
+
+    /**
+     * Usuwa przedmioty, których czas życia minął (wywoływane przez task co sekundę)
+     * Koło czasowe oddaje tylko wpisy z bieżących kubełków - bez przeglądania magazynu.
+     * Wszystkie wygasłe wpisy są usuwane w jednym zapisie i jednym odświeżeniu GUI.
+     */
+    public void expireItems() {
+        List<AbyssEntry> expired = new ArrayList<>();
+        long waitStart = System.nanoTime();
+        synchronized (storage) {
+            recordLockWait(waitStart);
+            if (expiryWheel == null) {
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            ExpiryRules rules = plugin.getSettings().expiry();
+            expiryWheel.advance(now, entry -> {
+                // Dokładny termin (dla wpisów leniwych było to tylko dolne ograniczenie); bez czasu życia wpis nie wygasa
+                long ttl = rules.ttlMillis(entry.getType());
+                if (ttl <= 0) {
+                    return;
+                }
+                if (entry.getCreatedAt() + ttl <= now) {
+                    expired.add(entry);
+                } else {
+                    expiryWheel.schedule(entry, entry.getCreatedAt() + ttl);
+                }
+            });
+
+            if (expired.isEmpty()) {
+                return;
+            }
+            for (AbyssEntry entry : expired) {
+                removeEntryById(entry.getId());
+            }
+            plugin.getMetrics().recordExpiry(expired.size());
+            commit();
+        }
+
+        plugin.getRefreshScheduler().requestRefresh();
+        if (plugin.getSettings().debug()) {
+            plugin.getLogger().info("Wygasło " + expired.size() + " przedmiotów w Otchłani");
+        }
+    }
+
+    /**
+     * Przenosi nieużywane przedmioty do zimnej warstwy (wywoływane przez task co sekundę)
+     * Gracze oglądają zwykle kilka pierwszych stron - reszta nie musi trzymać ItemStacków na stercie.
+     * Wpis wraca na stertę przy pierwszym wyświetleniu (np. przez {@link #getItemsForPage}).
+     */
+    public void demoteColdEntries() {
+        int demoted;
+        long coldBytes;
+        long waitStart = System.nanoTime();
+        synchronized (storage) {
+            recordLockWait(waitStart);
+            if (coldTier == null) {
+                return;
+            }
+            demoted = coldTier.demote(System.currentTimeMillis(), System.nanoTime() + DEMOTE_BUDGET_NANOS);
+            coldBytes = coldTier.getColdBytes();
+        }
+
+        if (demoted > 0 && plugin.getSettings().debug()) {
+            plugin.getLogger().info("Przeniesiono " + demoted + " przedmiotów do zimnej warstwy ("
+                    + coldBytes / 1024 + " KB poza stertą)");
+        }
+    }
+
+    /**
+     * Uruchamia odczyt wpisów z dysku w tle (wywoływane pod blokadą)
+     * Deserializacja odbywa się poza blokadą i poza głównym wątkiem; do indeksów trafiają paczki.
+     * Bez wyszukiwania, sortowania i kategorii nic nie jest odczytywane - wpisy czekają w kolejce
+     */
+    private void startIndexer() {
+        if (indexerRunning || pendingIndex.isEmpty()
+                || (searchIndex == null && sortIndexes.isEmpty() && sortBuilds.isEmpty() && categoryRules == null)) {
+            return;
+        }
+
+        int generation = indexGeneration;
+        List<AbyssEntry> entries = pendingIndex;
+        pendingIndex = new ArrayList<>();
+        indexerRunning = true;
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> indexInBackground(generation, entries));
+    }
+
+    /**
+     * Odczytuje wpisy z dysku i dodaje je do indeksów (wątek asynchroniczny)
+     * Wpis zapamiętuje materiał, ilość i poziom wartości, ale nie trzyma ItemStacka
+     */
+    private void indexInBackground(int generation, List<AbyssEntry> entries) {
+        long start = System.nanoTime();
+        for (int from = 0; from < entries.size(); from += INDEX_BATCH) {
+            List<AbyssEntry> batch = entries.subList(from, Math.min(from + INDEX_BATCH, entries.size()));
+            SearchTerms[] terms = new SearchTerms[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                AbyssEntry entry = batch.get(i);
+                if (entry.isRemoved()) {
+                    continue;
+                }
+                try {
+                    // Bez zapisywania ItemStacka we wpisie - nie chcemy trzymać całego magazynu na stercie
+                    ItemStack item = ItemStack.deserializeBytes(entry.toBytes());
+                    entry.resolve(item);
+                    terms[i] = SearchTerms.of(item);
+                } catch (Exception e) {
+                    plugin.getLogger().warning("Nie można zaindeksować przedmiotu #" + entry.getId() + ": " + e.getMessage());
+                }
+            }
+
+            synchronized (storage) {
+                // Magazyn wyczyszczony w międzyczasie - te wpisy już nie istnieją
+                if (indexGeneration != generation) {
+                    indexerRunning = false;
+                    startIndexer();
+                    publish();
+                    return;
+                }
+                if (categoryRules != null) {
+                    for (AbyssEntry entry : batch) {
+                        if (!entry.isRemoved() && entry.isResolved() && !entryCategories.containsKey(entry)) {
+                            assignCategory(entry);
+                        }
+                    }
+                }
+                if (searchIndex != null) {
+                    searchIndex.addAll(batch, terms);
+                }
+                for (SortIndex index : sortIndexes.values()) {
+                    index.addAll(batch);
+                }
+                for (AbyssEntry entry : batch) {
+                    touchSortBuilds(entry);
+                }
+                // Partycje kategorii są czytane bez blokady - nowe wpisy muszą być opublikowane
+                publish();
+            }
+        }
+
+        synchronized (storage) {
+            indexerRunning = false;
+            // Wpisy, które przyszły w trakcie, odczytujemy kolejnym przebiegiem
+            startIndexer();
+            // Koniec indeksowania widać w publikowanym stanie
+            publish();
+        }
+
+        plugin.getLogger().info("Zaindeksowano " + entries.size() + " przedmiotów Otchłani ("
+                + (System.nanoTime() - start) / 1_000_000 + " ms)");
+        if (plugin.isEnabled()) {
+            // Widzowie z wyszukiwaniem lub sortowaniem dostaną pełne wyniki
+            Bukkit.getScheduler().runTask(plugin, () -> plugin.getRefreshScheduler().requestRefresh());
+        }
+    }
+
+    /**
+     * Pobiera posortowany widok dla trybu (wywoływane pod blokadą)
+     * Przy pierwszym użyciu trybu widok jest budowany w tle - do tego czasu zwraca null
+     */
+    private SortIndex getSortIndex(SortMode mode) {
+        SortIndex index = sortIndexes.get(mode);
+        if (index == null) {
+            startSortBuild(mode, false, List.of(storage.snapshot().asList()));
+        }
+        return index;
+    }
+
+    /**
+     * Pobiera posortowany widok kategorii (wywoływane pod blokadą)
+     * Przy pierwszym użyciu trybu widoki wszystkich kategorii są budowane w tle - do tego czasu zwraca null
+     */
+    private SortIndex getCategorySortIndex(SortMode mode, int category) {
+        SortIndex[] indexes = categorySortIndexes.get(mode);
+        if (indexes == null) {
+            List<List<AbyssEntry>> sources = new ArrayList<>(partitions.length);
+            for (EntryList partition : partitions) {
+                sources.add(partition.snapshot().asList());
+            }
+            startSortBuild(mode, true, sources);
+            return null;
+        }
+        return indexes[category];
+    }
+
+    /**
+     * Uruchamia budowę posortowanych widoków w tle, jeśli taka budowa jeszcze nie trwa (wywoływane pod blokadą)
+     * Sortowanie całego magazynu to O(n log n) - nie może blokować magazynu ani głównego wątku
+     * @param sources niezmienne kopie wpisów, po jednej na widok
+     */
+    private void startSortBuild(SortMode mode, boolean partitioned, List<List<AbyssEntry>> sources) {
+        for (SortBuild build : sortBuilds) {
+            if (build.mode == mode && build.partitioned == partitioned) {
+                return;
+            }
+        }
+
+        SortBuild build = new SortBuild(mode, partitioned, sortGeneration);
+        sortBuilds.add(build);
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> buildSortIndexes(build, sources));
+        // Wpisy z dysku trafią do widoku po odczytaniu w tle
+        startIndexer();
+    }
+
+    /**
+     * Buduje posortowane widoki i publikuje je (wątek asynchroniczny)
+     * Wpisy zmienione w trakcie budowy są nakładane na gotowe widoki już pod blokadą
+     */
+    private void buildSortIndexes(SortBuild build, List<List<AbyssEntry>> sources) {
+        SortIndex[] indexes = new SortIndex[sources.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = new SortIndex(build.mode);
+            indexes[i].addAll(sources.get(i));
+        }
+
+        synchronized (storage) {
+            sortBuilds.remove(build);
+            if (build.generation != sortGeneration) {
+                // Magazyn wyczyszczony lub kategorie zmienione w międzyczasie - widok zbudujemy od nowa przy następnym użyciu
+                return;
+            }
+
+            for (AbyssEntry entry : build.touched) {
+                for (int i = 0; i < indexes.length; i++) {
+                    boolean belongs = !entry.isRemoved() && (!build.partitioned || categoryOf(entry) == i);
+                    if (belongs) {
+                        indexes[i].update(entry);
+                    } else {
+                        indexes[i].remove(entry);
+                    }
+                }
+            }
+
+            if (build.partitioned) {
+                categorySortIndexes.put(build.mode, indexes);
+            } else {
+                sortIndexes.put(build.mode, indexes[0]);
+            }
+            // Nowa wersja - widzowie tego trybu przerenderują stronę
+            publish();
+        }
+
+        if (plugin.isEnabled()) {
+            Bukkit.getScheduler().runTask(plugin, () -> plugin.getRefreshScheduler().requestRefresh());
+        }
+    }
+
+    /**
+     * Zapamiętuje zmieniony wpis dla widoków budowanych w tle (wywoływane pod blokadą)
+     */
+    private void touchSortBuilds(AbyssEntry entry) {
+        for (SortBuild build : sortBuilds) {
+            build.touched.add(entry);
+        }
+    }
+
+    /**
+     * Pobiera wpisy dla konkretnej strony w podanej kolejności
+     * Tryby inne niż kolejność magazynu czytają posortowany widok - O(log n + rozmiar strony);
+     * póki widok jest budowany w tle, strona jest w kolejności magazynu
+     * @param category kategoria (zakładka) lub -1 dla całego magazynu
+     */
+    public List<AbyssEntry> getEntriesForPage(int page, int itemsPerPage, int category, SortMode mode) {
+        // Partycja kategorii - bez filtrowania całego magazynu
+        EntryList source = published.source(category);
+        if (source == null) {
+            return List.of();
+        }
+
+        if (mode == SortMode.NEWEST) {
+            // Kolejność magazynu od końca - bez indeksu
+            int to = source.size() - page * itemsPerPage;
+            if (to <= 0) {
+                return List.of();
+            }
+            List<AbyssEntry> entries = new ArrayList<>(source.range(Math.max(0, to - itemsPerPage), to));
+            Collections.reverse(entries);
+            return entries;
+        }
+
+        if (mode != SortMode.OLDEST) {
+            long waitStart = System.nanoTime();
+            synchronized (storage) {
+                recordLockWait(waitStart);
+                if (category >= partitions.length) {
+                    return List.of();
+                }
+                SortIndex index = category < 0 ? getSortIndex(mode) : getCategorySortIndex(mode, category);
+                if (index != null) {
+                    return index.getPage(page, itemsPerPage);
+                }
+            }
+        }
+
+        int startIndex = page * itemsPerPage;
+        return source.range(startIndex, startIndex + itemsPerPage);
+    }
+
+    /**
+     * Pobiera ilość przedmiotów widocznych w podanej kategorii i kolejności
+     * Posortowany widok całego magazynu może być chwilowo mniejszy, póki wpisy z dysku są odczytywane w tle;
+     * widoki kategorii mają zawsze rozmiar partycji, a widok budowany w tle - rozmiar magazynu
+     * @param category kategoria (zakładka) lub -1 dla całego magazynu
+     */
+    public int getItemCount(int category, SortMode mode) {
+        if (category >= 0) {
+            EntryList source = published.source(category);
+            return source != null ? source.size() : 0;
+        }
+        if (!mode.isIndexed()) {
+            return getItemCount();
+        }
+        long waitStart = System.nanoTime();
+        synchronized (storage) {
+            recordLockWait(waitStart);
+            SortIndex index = getSortIndex(mode);
+            return index != null ? index.size() : published.entries().size();
+        }
+    }
+
+    /**
+     * Wyszukuje przedmioty spełniające zapytanie
+     * @return wynik lub null, jeśli wyszukiwanie jest wyłączone
+     */
+    public SearchResult search(SearchQuery query) {
+        long waitStart = System.nanoTime();
+        synchronized (storage) {
+            recordLockWait(waitStart);
+            return searchIndex != null ? searchIndex.query(query) : null;
+        }
+    }
+
+    /**
+     * Sprawdza, czy wyszukiwanie jest włączone
+     */
+    public boolean isSearchEnabled() {
+        return published.searchEnabled();
+    }
+
+    /**
+     * Sprawdza, czy część przedmiotów z dysku czeka jeszcze na zaindeksowanie
+     */
+    public boolean isIndexing() {
+        return published.indexing();
     }
 
     /**
@@ -27,11 +1000,15 @@ public class AbyssManager {
             return;
         }
 
+        boolean merge = plugin.getSettings().mergeSimilar();
+        long waitStart = System.nanoTime();
         synchronized (storage) {
-            storage.add(item.clone());
+            recordLockWait(waitStart);
+            store(item, merge);
+            commit();
         }
 
-        if (plugin.getConfig().getBoolean("debug", false)) {
+        if (plugin.getSettings().debug()) {
             plugin.getLogger().info("Dodano przedmiot do Otchłani: " + item.getType() + " x" + item.getAmount());
         }
     }
@@ -44,25 +1021,102 @@ public class AbyssManager {
             return;
         }
 
+        boolean merge = plugin.getSettings().mergeSimilar();
+        long waitStart = System.nanoTime();
         synchronized (storage) {
+            recordLockWait(waitStart);
             for (ItemStack item : items) {
                 if (item != null && !item.getType().isAir()) {
-                    storage.add(item.clone());
+                    store(item, merge);
                 }
             }
+            commit();
         }
 
-        if (plugin.getConfig().getBoolean("debug", false)) {
+        if (plugin.getSettings().debug()) {
             plugin.getLogger().info("Dodano " + items.size() + " przedmiotów do Otchłani");
         }
     }
 
+    /**
+     * Zgłasza przedmiot do magazynu bez czekania na blokadę (bezpieczne z dowolnego wątku)
+     * Przedmiot pojawi się w magazynie przy najbliższym opróżnieniu kolejki, razem z innymi zgłoszonymi
+     * @param item klon przedmiotu - po zgłoszeniu nie może być już zmieniany
+     */
+    public void submit(ItemStack item) {
+        if (item == null || item.getType().isAir()) {
+            return;
+        }
+
+        boolean queued = ingestQueue.offer(item);
+        plugin.getMetrics().recordIngestSubmit(!queued);
+    }
+
+    /**
+     * Zgłasza wiele przedmiotów do magazynu bez czekania na blokadę
+     */
+    public void submitAll(Collection<ItemStack> items) {
+        for (ItemStack item : items) {
+            submit(item);
+        }
+    }
+
+    /**
+     * Zapisuje zgłoszone przedmioty do magazynu jedną paczką (task co tick i wyłączenie pluginu)
+     * Łączenie, indeksy, dziennik i publikacja kopii odbywają się raz na paczkę, a GUI jest odświeżane raz
+     * @return ilość zapisanych przedmiotów
+     */
+    public int drainIngestQueue() {
+        int drained = drainBatch();
+        if (drained > 0) {
+            plugin.getRefreshScheduler().requestRefresh();
+        }
+        return drained;
+    }
+
+    /**
+     * Zapisuje jedną paczkę zgłoszonych przedmiotów bez odświeżania GUI
+     * @return ilość zapisanych przedmiotów
+     */
+    private int drainBatch() {
+        int drained = ingestQueue.drain(ingestBatch, ingestQueue.capacity());
+        if (drained == 0) {
+            return 0;
+        }
+
+        try {
+            addItems(ingestBatch);
+        } finally {
+            ingestBatch.clear();
+        }
+
+        plugin.getMetrics().recordIngestBatch(drained);
+        return drained;
+    }
+
+    /**
+     * Pobiera przybliżoną ilość przedmiotów czekających w kolejce przyjęć
+     */
+    public int getIngestBacklog() {
+        return ingestQueue.size();
+    }
+
     /**
      * Usuwa przedmiot z magazynu
      */
     public boolean removeItem(ItemStack item) {
+        long waitStart = System.nanoTime();
         synchronized (storage) {
-            return storage.remove(item);
+            recordLockWait(waitStart);
+            // Iteracja po niezmiennej kopii - usuwanie z listy jej nie psuje
+            for (AbyssEntry entry : storage.snapshot().asList()) {
+                if (entry.getItem().equals(item)) {
+                    removeEntryById(entry.getId());
+                    commit();
+                    return true;
+                }
+            }
+            return false;
         }
     }
 
@@ -70,9 +1124,13 @@ public class AbyssManager {
      * Usuwa przedmiot z określonego indeksu
      */
     public ItemStack removeItem(int index) {
+        long waitStart = System.nanoTime();
         synchronized (storage) {
+            recordLockWait(waitStart);
             if (index >= 0 && index < storage.size()) {
-                return storage.remove(index);
+                ItemStack item = removeEntry(index).getItem();
+                commit();
+                return item;
             }
         }
         return null;
@@ -83,11 +1141,14 @@ public class AbyssManager {
      * Zapobiega race conditions przy jednoczesnym dostępie
      */
     public ItemStack takeItem(int index) {
+        long waitStart = System.nanoTime();
         synchronized (storage) {
+            recordLockWait(waitStart);
             if (index >= 0 && index < storage.size()) {
-                ItemStack item = storage.get(index);
+                ItemStack item = storage.get(index).getItem();
                 if (item != null && !item.getType().isAir()) {
-                    storage.remove(index);
+                    removeEntry(index);
+                    commit();
                     return item.clone(); // Zwróć klon aby zachować dane oryginału
                 }
             }
@@ -96,31 +1157,149 @@ public class AbyssManager {
     }
 
     /**
-     * Pobiera przedmiot z określonego indeksu (bez usuwania)
+     * Atomowo pobiera i usuwa przedmiot o podanym identyfikatorze (thread-safe)
+     * GUI zapamiętuje identyfikatory wyświetlonych wpisów, więc gracz zabiera dokładnie ten
+     * przedmiot, który widział - nawet jeśli w międzyczasie inne wpisy zmieniły pozycje
+     * @return klon przedmiotu lub null, jeśli wpisu już nie ma
      */
-    public ItemStack getItem(int index) {
+    public ItemStack takeItemById(long id) {
+        long waitStart = System.nanoTime();
         synchronized (storage) {
-            if (index >= 0 && index < storage.size()) {
-                return storage.get(index);
+            recordLockWait(waitStart);
+            AbyssEntry entry = storage.getById(id);
+            if (entry == null) {
+                return null;
             }
+
+            ItemStack item = entry.getItem();
+            if (item == null || item.getType().isAir()) {
+                return null;
+            }
+            removeEntryById(id);
+            commit();
+            return item.clone();
+        }
+    }
+
+    /**
+     * Atomowo zabiera przedmioty podobne do wpisu o podanym identyfikatorze (thread-safe)
+     * Wpisy są zabierane od najstarszego, aż skończy się miejsce - ostatni może zostać zabrany częściowo.
+     * Cała paczka to jedna blokada i jedna publikacja magazynu zamiast osobnego zabierania każdego stacka
+     * @param room ile przedmiotów zmieści ekwipunek gracza
+     * @return zabrane przedmioty (klony, każdy najwyżej jeden stack) - pusta lista, jeśli wpisu już nie ma
+     */
+    public List<ItemStack> takeSimilar(long id, int room) {
+        long waitStart = System.nanoTime();
+        synchronized (storage) {
+            recordLockWait(waitStart);
+            AbyssEntry clicked = storage.getById(id);
+            if (clicked == null || room <= 0) {
+                return List.of();
+            }
+            ItemStack reference = clicked.getItem();
+            if (reference == null || reference.getType().isAir()) {
+                return List.of();
+            }
+
+            List<ItemStack> taken = new ArrayList<>();
+            for (AbyssEntry entry : similarCandidates(reference.getType())) {
+                if (room <= 0) {
+                    break;
+                }
+                if (entry.isRemoved() || !isSimilar(entry, clicked, reference)) {
+                    continue;
+                }
+
+                int amount = entry.getAmount();
+                if (amount <= room) {
+                    taken.add(entry.getItem().clone());
+                    removeEntryById(entry.getId());
+                    room -= amount;
+                } else {
+                    // Brakuje miejsca na cały stack - reszta zostaje w magazynie
+                    taken.add(entry.getItem().asQuantity(room));
+                    markDirty(storage.indexOf(entry.getId()));
+                    replaceAmount(entry, amount - room);
+                    room = 0;
+                }
+            }
+
+            if (!taken.isEmpty()) {
+                commit();
+            }
+            return taken;
+        }
+    }
+
+    /**
+     * Wpisy, które mogą być podobne do przedmiotu danego materiału, w kolejności magazynu (wywoływane pod blokadą)
+     * Gdy indeks wyszukiwania jest kompletny, to tylko jego lista materiału - bez przeglądania magazynu
+     */
+    private List<AbyssEntry> similarCandidates(Material material) {
+        if (searchIndex != null && !indexerRunning && pendingIndex.isEmpty()) {
+            SearchResult result = searchIndex.query(new SearchQuery(material, -1, List.of(), ""));
+            return result.getPage(0, result.size());
+        }
+        // Kopia - zabieranie zmienia magazyn w trakcie przeglądania
+        return storage.snapshot().asList();
+    }
+
+    /**
+     * Sprawdza, czy wpis zawiera ten sam przedmiot co kliknięty (poza ilością)
+     */
+    private static boolean isSimilar(AbyssEntry entry, AbyssEntry clicked, ItemStack reference) {
+        if (entry == clicked) {
+            return true;
+        }
+        ItemPrototype prototype = entry.getPrototype();
+        if (prototype != null && prototype == clicked.getPrototype()) {
+            // Wspólny wzorzec - ten sam przedmiot bez porównywania mety
+            return true;
+        }
+        return entry.getType() == reference.getType() && reference.isSimilar(entry.getItem());
+    }
+
+    /**
+     * Pobiera przedmiot z określonego indeksu (bez usuwania)
+     */
+    public ItemStack getItem(int index) {
+        EntryList current = published.entries();
+        if (index >= 0 && index < current.size()) {
+            return current.get(index).getItem();
         }
         return null;
     }
 
+    /**
+     * Pobiera przedmiot o podanym identyfikatorze (bez usuwania)
+     * @return przedmiot lub null, jeśli wpisu nie ma
+     */
+    public ItemStack getItemById(long id) {
+        AbyssEntry entry = published.entries().getById(id);
+        return entry != null ? entry.getItem() : null;
+    }
+
     /**
      * Ustawia przedmiot na określonym indeksie
      */
     public void setItem(int index, ItemStack item) {
+        long waitStart = System.nanoTime();
         synchronized (storage) {
+            recordLockWait(waitStart);
             if (index >= 0 && index < storage.size()) {
                 if (item == null || item.getType().isAir()) {
-                    storage.remove(index);
+                    removeEntry(index);
                 } else {
-                    storage.set(index, item.clone());
+                    // Ten sam identyfikator - w dzienniku wpis zostaje nadpisany w miejscu
+                    AbyssEntry entry = storage.get(index);
+                    markDirty(index);
+                    closeEntry(entry);
+                    replaceItem(entry, item);
                 }
             } else if (item != null && !item.getType().isAir()) {
-                storage.add(item.clone());
+                addEntry(newEntry(ItemKey.of(item), item.getAmount()));
             }
+            commit();
         }
     }
 
@@ -128,46 +1307,57 @@ public class AbyssManager {
      * Pobiera wszystkie przedmioty
      */
     public List<ItemStack> getAllItems() {
-        synchronized (storage) {
-            return new ArrayList<>(storage);
+        List<AbyssEntry> entries = published.entries().asList();
+        List<ItemStack> items = new ArrayList<>(entries.size());
+        for (AbyssEntry entry : entries) {
+            items.add(entry.getItem());
         }
+        return items;
     }
 
     /**
      * Pobiera ilość przedmiotów w magazynie
      */
     public int getItemCount() {
-        synchronized (storage) {
-            return storage.size();
-        }
+        return published.entries().size();
+    }
+
+    /**
+     * Pobiera szacunkowy rozmiar magazynu w bajtach
+     */
+    public long getEstimatedBytes() {
+        return published.storedBytes();
     }
 
     /**
      * Pobiera przedmioty dla konkretnej strony
      */
     public List<ItemStack> getItemsForPage(int page, int itemsPerPage) {
-        synchronized (storage) {
-            int startIndex = page * itemsPerPage;
-            int endIndex = Math.min(startIndex + itemsPerPage, storage.size());
-
-            if (startIndex >= storage.size()) {
-                return new ArrayList<>();
-            }
-
-            return new ArrayList<>(storage.subList(startIndex, endIndex));
+        List<AbyssEntry> entries = getEntriesForPage(page, itemsPerPage);
+        List<ItemStack> items = new ArrayList<>(entries.size());
+        for (AbyssEntry entry : entries) {
+            items.add(entry.getItem());
         }
+        return items;
+    }
+
+    /**
+     * Pobiera wpisy (przedmioty razem z identyfikatorami) dla konkretnej strony
+     */
+    public List<AbyssEntry> getEntriesForPage(int page, int itemsPerPage) {
+        int startIndex = page * itemsPerPage;
+        return published.entries().range(startIndex, startIndex + itemsPerPage);
     }
 
     /**
      * Oblicza całkowitą liczbę stron
      */
     public int getTotalPages(int itemsPerPage) {
-        synchronized (storage) {
-            if (storage.isEmpty()) {
-                return 1;
-            }
-            return (int) Math.ceil((double) storage.size() / itemsPerPage);
+        int size = published.entries().size();
+        if (size == 0) {
+            return 1;
         }
+        return (int) Math.ceil((double) size / itemsPerPage);
     }
 
     /**
@@ -176,6 +1366,37 @@ public class AbyssManager {
     public void clear() {
         synchronized (storage) {
             storage.clear();
+            openEntries.clear();
+            openKeys.clear();
+            prototypes = new PrototypeTable();
+            if (searchIndex != null) {
+                searchIndex = new SearchIndex(this::categoryOf);
+            }
+            sortIndexes.replaceAll((mode, index) -> new SortIndex(mode));
+            categorySortIndexes.clear();
+            sortGeneration++;
+            for (EntryList partition : partitions) {
+                partition.clear();
+            }
+            entryCategories.clear();
+            pendingIndex = new ArrayList<>();
+            indexGeneration++;
+            storedBytes = 0;
+            if (evictionIndex != null) {
+                evictionIndex.clear();
+            }
+            if (expiryWheel != null) {
+                expiryWheel.clear();
+            }
+            if (coldTier != null) {
+                // Stare wpisy mogą jeszcze być czytane z opublikowanych kopii - nowa warstwa ich nie zna
+                coldTier = new ColdTier(plugin.getSettings().coldTierIdleMillis(), prototypes);
+            }
+            markDirty(0);
+            if (storageEngine != null) {
+                storageEngine.logClear();
+            }
+            commit();
         }
         plugin.getLogger().info("Magazyn Otchłani został wyczyszczony");
     }
@@ -184,9 +1405,7 @@ public class AbyssManager {
      * Sprawdza, czy magazyn jest pusty
      */
     public boolean isEmpty() {
-        synchronized (storage) {
-            return storage.isEmpty();
-        }
+        return published.entries().isEmpty();
     }
 
     /**
@@ -200,8 +1419,23 @@ public class AbyssManager {
      * Sprawdza, czy dany globalny indeks istnieje
      */
     public boolean isValidIndex(int index) {
-        synchronized (storage) {
-            return index >= 0 && index < storage.size();
+        return index >= 0 && index < published.entries().size();
+    }
+
+    /**
+     * Posortowane widoki jednego trybu budowane w tle (cały magazyn lub wszystkie kategorie)
+     * Wpisy zmienione w trakcie budowy czekają na nałożenie przy publikacji widoków
+     */
+    private static final class SortBuild {
+        private final SortMode mode;
+        private final boolean partitioned;
+        private final int generation;
+        private final List<AbyssEntry> touched = new ArrayList<>();
+
+        SortBuild(SortMode mode, boolean partitioned, int generation) {
+            this.mode = mode;
+            this.partitioned = partitioned;
+            this.generation = generation;
         }
     }
 }
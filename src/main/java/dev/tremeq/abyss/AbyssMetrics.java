@@ -0,0 +1,223 @@
+package dev.tremeq.abyss;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Liczniki pracy pluginu (tanie przy zapisie z wielu wątków)
+ * Czasy są zbierane w histogramach - /abyss stats i eksport czytają percentyle
+ */
+public class AbyssMetrics {
+    private final LongAdder refreshRequests = new LongAdder();
+    private final LongAdder refreshFlushes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder evictedBytes = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    // Odświeżenia GUI - ilu widzów odświeżono i ile slotów faktycznie wysłano
+    private final LongAdder refreshedViewers = new LongAdder();
+    private final LongAdder slotsWritten = new LongAdder();
+    private final LatencyHistogram refreshTimes = new LatencyHistogram();
+    private final LatencyHistogram clickTimes = new LatencyHistogram();
+    // Czas oczekiwania na blokadę magazynu
+    private final LatencyHistogram lockWaits = new LatencyHistogram();
+    private final LongAdder collectionRuns = new LongAdder();
+    // Kolejka przyjęć - ile przedmiotów zgłoszono, ile trafiło do przepełnienia i w ilu paczkach je zapisano
+    private final LongAdder ingestSubmitted = new LongAdder();
+    private final LongAdder ingestOverflows = new LongAdder();
+    private final LongAdder ingestBatches = new LongAdder();
+    private final LongAdder ingestDrained = new LongAdder();
+    // Zbieranie itemów osobno dla każdego świata
+    private final Map<String, WorldCollection> worldCollections = new ConcurrentHashMap<>();
+
+    /**
+     * Zlicza żądanie odświeżenia GUI
+     */
+    public void recordRefreshRequest() {
+        refreshRequests.increment();
+    }
+
+    /**
+     * Zlicza faktycznie wykonane odświeżenie GUI
+     */
+    public void recordRefreshFlush() {
+        refreshFlushes.increment();
+    }
+
+    /**
+     * Zlicza wpis usunięty z magazynu z powodu przekroczenia limitu
+     */
+    public void recordEviction(int estimatedBytes) {
+        evictions.increment();
+        evictedBytes.add(estimatedBytes);
+    }
+
+    /**
+     * Zlicza wpisy usunięte z magazynu po upływie czasu życia
+     */
+    public void recordExpiry(int count) {
+        expirations.add(count);
+    }
+
+    /**
+     * Zapisuje jedno odświeżenie wszystkich widzów GUI
+     * @param viewers ilu widzów odświeżono
+     * @param slots ile slotów zmieniono w ich inventory
+     */
+    public void recordRefresh(int viewers, int slots, long nanos) {
+        refreshedViewers.add(viewers);
+        slotsWritten.add(slots);
+        refreshTimes.record(nanos);
+    }
+
+    /**
+     * Zapisuje czas obsługi kliknięcia w GUI
+     */
+    public void recordClick(long nanos) {
+        clickTimes.record(nanos);
+    }
+
+    /**
+     * Zapisuje czas oczekiwania na blokadę magazynu
+     */
+    public void recordLockWait(long nanos) {
+        lockWaits.record(nanos);
+    }
+
+    /**
+     * Zlicza rozpoczęte zbieranie itemów z ziemi
+     */
+    public void recordCollectionRun() {
+        collectionRuns.increment();
+    }
+
+    /**
+     * Zlicza przedmiot zgłoszony do kolejki przyjęć
+     * @param overflowed pierścień był pełny - przedmiot czeka w kolejce przepełnienia
+     */
+    public void recordIngestSubmit(boolean overflowed) {
+        ingestSubmitted.increment();
+        if (overflowed) {
+            ingestOverflows.increment();
+        }
+    }
+
+    /**
+     * Zlicza paczkę z kolejki przyjęć zapisaną do magazynu
+     */
+    public void recordIngestBatch(int size) {
+        ingestBatches.increment();
+        ingestDrained.add(size);
+    }
+
+    /**
+     * Zapisuje porcję zbierania w jednym świecie
+     * @param scanned ile entity sprawdzono
+     * @param collected ile itemów zebrano
+     */
+    public void recordCollection(String world, int scanned, int collected, long nanos) {
+        WorldCollection stats = worldCollections.computeIfAbsent(world, ignored -> new WorldCollection());
+        stats.scanned.add(scanned);
+        stats.collected.add(collected);
+        stats.nanos.add(nanos);
+    }
+
+    public long getRefreshRequests() {
+        return refreshRequests.sum();
+    }
+
+    public long getRefreshFlushes() {
+        return refreshFlushes.sum();
+    }
+
+    /**
+     * Pobiera ilość odświeżeń zaoszczędzonych dzięki łączeniu żądań
+     */
+    public long getRefreshesSaved() {
+        return Math.max(0L, getRefreshRequests() - getRefreshFlushes());
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getEvictedBytes() {
+        return evictedBytes.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    public long getRefreshedViewers() {
+        return refreshedViewers.sum();
+    }
+
+    public long getSlotsWritten() {
+        return slotsWritten.sum();
+    }
+
+    public LatencyHistogram getRefreshTimes() {
+        return refreshTimes;
+    }
+
+    public LatencyHistogram getClickTimes() {
+        return clickTimes;
+    }
+
+    public LatencyHistogram getLockWaits() {
+        return lockWaits;
+    }
+
+    public long getCollectionRuns() {
+        return collectionRuns.sum();
+    }
+
+    public long getIngestSubmitted() {
+        return ingestSubmitted.sum();
+    }
+
+    /**
+     * Pobiera ilość przedmiotów, które nie zmieściły się w pierścieniu kolejki przyjęć
+     */
+    public long getIngestOverflows() {
+        return ingestOverflows.sum();
+    }
+
+    public long getIngestBatches() {
+        return ingestBatches.sum();
+    }
+
+    public long getIngestDrained() {
+        return ingestDrained.sum();
+    }
+
+    /**
+     * Pobiera statystyki zbierania dla każdego świata (widok tylko do odczytu)
+     */
+    public Map<String, WorldCollection> getWorldCollections() {
+        return Collections.unmodifiableMap(worldCollections);
+    }
+
+    /**
+     * Zbieranie itemów w jednym świecie od startu pluginu
+     */
+    public static final class WorldCollection {
+        private final LongAdder scanned = new LongAdder();
+        private final LongAdder collected = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        public long getScanned() {
+            return scanned.sum();
+        }
+
+        public long getCollected() {
+            return collected.sum();
+        }
+
+        public long getNanos() {
+            return nanos.sum();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package dev.tremeq.abyss;
+
+import dev.tremeq.abyss.storage.EvictionPolicy;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Niezmienna, typowana migawka config.yml
+ * Budowana przy włączeniu pluginu i przy każdym przeładowaniu - gorące ścieżki
+ * (kliknięcia, dodawanie itemów, zbieranie) czytają pola zamiast ścieżek configu
+ */
+public record AbyssSettings(
+        boolean debug,
+        // GUI
+        int guiSize,
+        String guiTitle,
+        int refreshIntervalTicks,
+        // Okna czasowe
+        boolean autoOpenEnabled,
+        int autoOpenInterval,
+        int autoOpenDuration,
+        // Zbieranie itemów
+        boolean collectionEnabled,
+        int collectionInterval,
+        boolean notifyPlayers,
+        boolean eventTracking,
+        boolean slicedSweep,
+        long sweepBudgetNanos,
+        Set<String> worldBlacklist,
+        // Nawigacja (slot -1 = przycisk wyłączony, navigationActions: indeks = slot w pasku)
+        boolean glassFiller,
+        int previousSlot,
+        int nextSlot,
+        int closeSlot,
+        int infoSlot,
+        int sortSlot,
+        int categorySlot,
+        int depositSlot,
+        List<NavigationAction> navigationActions,
+        // Magazyn
+        boolean storageEnabled,
+        int compactThreshold,
+        boolean mergeSimilar,
+        boolean fsync,
+        boolean coldTierEnabled,
+        long coldTierIdleMillis,
+        int ingestBufferSize,
+        // Limity magazynu (0 = bez limitu)
+        int maxEntries,
+        long maxBytes,
+        EvictionPolicy evictionPolicy,
+        // Wygasanie przedmiotów
+        ExpiryRules expiry,
+        // Wyszukiwanie
+        boolean searchEnabled,
+        // Kategorie (zakładki GUI)
+        CategoryRules categories,
+        // Eksport metryk (port 0 = serwer HTTP wyłączony, plik null = zapis wyłączony)
+        int metricsHttpPort,
+        String metricsFile,
+        int metricsFileInterval
+) {
+
+    /**
+     * Akcja przypisana do slotu paska nawigacji
+     */
+    public enum NavigationAction {
+        NONE,
+        PREVIOUS_PAGE,
+        NEXT_PAGE,
+        CLOSE,
+        INFO,
+        SORT,
+        CATEGORY,
+        DEPOSIT
+    }
+
+    /**
+     * Czyta ustawienia z configu (błędne wartości są zgłaszane do logu i zastępowane domyślnymi)
+     */
+    public static AbyssSettings load(FileConfiguration config, Logger logger) {
+        int previousSlot = readButtonSlot(config, logger, "previous-page", 0);
+        int nextSlot = readButtonSlot(config, logger, "next-page", 8);
+        int closeSlot = readButtonSlot(config, logger, "close", 5);
+        int infoSlot = readButtonSlot(config, logger, "info", 3);
+        int sortSlot = readButtonSlot(config, logger, "sort", 4);
+        CategoryRules categories = CategoryRules.load(config, logger);
+        // Bez kategorii nie ma czego przełączać - slot zostaje dla szkła
+        int categorySlot = categories.isEnabled() ? readButtonSlot(config, logger, "category", 6) : -1;
+        int depositSlot = readButtonSlot(config, logger, "deposit", 7);
+
+        // Jeden slot = jeden przycisk - przy powtórzeniu zostaje przycisk o wyższym priorytecie,
+        // więc pasek rysuje dokładnie to, co obsługuje kliknięcie
+        boolean[] taken = new boolean[9];
+        previousSlot = claimButtonSlot(logger, taken, "previous-page", previousSlot);
+        nextSlot = claimButtonSlot(logger, taken, "next-page", nextSlot);
+        closeSlot = claimButtonSlot(logger, taken, "close", closeSlot);
+        depositSlot = claimButtonSlot(logger, taken, "deposit", depositSlot);
+        categorySlot = claimButtonSlot(logger, taken, "category", categorySlot);
+        sortSlot = claimButtonSlot(logger, taken, "sort", sortSlot);
+        infoSlot = claimButtonSlot(logger, taken, "info", infoSlot);
+
+        double budgetMs = config.getDouble("item-collection.sliced-sweep.time-budget-ms", 2.0);
+
+        return new AbyssSettings(
+                config.getBoolean("debug", false),
+                config.getInt("gui.size", 54),
+                config.getString("gui.title", "&8&lOtchłań"),
+                config.getInt("gui.refresh-interval-ticks", 1),
+                config.getBoolean("auto-open.enabled", false),
+                config.getInt("auto-open.interval", 300),
+                config.getInt("auto-open.duration", 30),
+                config.getBoolean("item-collection.enabled", true),
+                config.getInt("item-collection.interval", 60),
+                config.getBoolean("item-collection.notify-players", true),
+                config.getBoolean("item-collection.event-tracking", true),
+                config.getBoolean("item-collection.sliced-sweep.enabled", true),
+                Math.max(100_000L, (long) (budgetMs * 1_000_000L)),
+                Set.copyOf(config.getStringList("item-collection.world-blacklist")),
+                config.getBoolean("navigation.glass-filler.enabled", true),
+                previousSlot,
+                nextSlot,
+                closeSlot,
+                infoSlot,
+                sortSlot,
+                categorySlot,
+                depositSlot,
+                buildNavigationActions(previousSlot, nextSlot, closeSlot, infoSlot, sortSlot, categorySlot, depositSlot),
+                config.getBoolean("storage.enabled", true),
+                config.getInt("storage.compact-threshold", 10000),
+                config.getBoolean("storage.merge-similar", false),
+                config.getBoolean("storage.fsync", false),
+                config.getBoolean("storage.cold-tier.enabled", true),
+                Math.max(1, config.getInt("storage.cold-tier.idle-seconds", 60)) * 1000L,
+                Math.max(64, config.getInt("storage.ingest-buffer-size", 4096)),
+                Math.max(0, config.getInt("storage.capacity.max-entries", 0)),
+                Math.max(0L, (long) (config.getDouble("storage.capacity.max-size-mb", 0) * 1024 * 1024)),
+                readEvictionPolicy(config, logger),
+                ExpiryRules.load(config, categories, logger),
+                config.getBoolean("search.enabled", true),
+                categories,
+                readMetricsPort(config, logger),
+                config.getBoolean("metrics.file.enabled", false) ? config.getString("metrics.file.path", "metrics.prom") : null,
+                Math.max(1, config.getInt("metrics.file.interval", 30))
+        );
+    }
+
+    /**
+     * Pobiera akcję dla slotu paska nawigacji
+     * @param relativeSlot slot liczony od początku paska (0-8)
+     */
+    public NavigationAction navigationAction(int relativeSlot) {
+        if (relativeSlot < 0 || relativeSlot >= navigationActions.size()) {
+            return NavigationAction.NONE;
+        }
+        return navigationActions.get(relativeSlot);
+    }
+
+    /**
+     * Buduje tablicę slot -> akcja (sloty są już unikalne, patrz {@link #claimButtonSlot})
+     */
+    private static List<NavigationAction> buildNavigationActions(int previousSlot, int nextSlot, int closeSlot, int infoSlot,
+                                                                 int sortSlot, int categorySlot, int depositSlot) {
+        NavigationAction[] actions = new NavigationAction[9];
+        Arrays.fill(actions, NavigationAction.NONE);
+
+        if (previousSlot >= 0) {
+            actions[previousSlot] = NavigationAction.PREVIOUS_PAGE;
+        }
+        if (nextSlot >= 0) {
+            actions[nextSlot] = NavigationAction.NEXT_PAGE;
+        }
+        if (closeSlot >= 0) {
+            actions[closeSlot] = NavigationAction.CLOSE;
+        }
+        if (depositSlot >= 0) {
+            actions[depositSlot] = NavigationAction.DEPOSIT;
+        }
+        if (categorySlot >= 0) {
+            actions[categorySlot] = NavigationAction.CATEGORY;
+        }
+        if (sortSlot >= 0) {
+            actions[sortSlot] = NavigationAction.SORT;
+        }
+        if (infoSlot >= 0) {
+            actions[infoSlot] = NavigationAction.INFO;
+        }
+
+        return List.of(actions);
+    }
+
+    private static EvictionPolicy readEvictionPolicy(FileConfiguration config, Logger logger) {
+        String name = config.getString("storage.capacity.eviction-policy", "FIFO");
+        try {
+            return EvictionPolicy.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.warning("Nieznana polityka usuwania storage.capacity.eviction-policy: " + name + " - używam FIFO");
+            return EvictionPolicy.FIFO;
+        }
+    }
+
+    /**
+     * Pobiera port serwera metryk
+     * @return port 1-65535 lub 0, jeśli serwer jest wyłączony lub port jest błędny
+     */
+    private static int readMetricsPort(FileConfiguration config, Logger logger) {
+        if (!config.getBoolean("metrics.http.enabled", false)) {
+            return 0;
+        }
+
+        int port = config.getInt("metrics.http.port", 9465);
+        if (port < 1 || port > 65535) {
+            logger.warning("Nieprawidłowy port metrics.http.port: " + port + " - serwer metryk wyłączony");
+            return 0;
+        }
+        return port;
+    }
+
+    /**
+     * Pobiera slot przycisku w pasku nawigacji
+     * @return slot 0-8 lub -1, jeśli przycisk jest wyłączony lub ma błędny slot
+     */
+    private static int readButtonSlot(FileConfiguration config, Logger logger, String type, int defaultSlot) {
+        if (!config.getBoolean("navigation." + type + ".enabled", true)) {
+            return -1;
+        }
+
+        int slot = config.getInt("navigation." + type + ".slot", defaultSlot);
+        if (slot < 0 || slot > 8) {
+            logger.warning("Nieprawidłowy slot przycisku navigation." + type + ": " + slot + " (dozwolone 0-8) - przycisk wyłączony");
+            return -1;
+        }
+        return slot;
+    }
+
+    /**
+     * Rezerwuje slot przycisku w pasku nawigacji (wywoływane od najwyższego priorytetu)
+     * @return slot lub -1, jeśli przycisk jest wyłączony albo slot zajął już ważniejszy przycisk
+     */
+    private static int claimButtonSlot(Logger logger, boolean[] taken, String type, int slot) {
+        if (slot < 0) {
+            return -1;
+        }
+        if (taken[slot]) {
+            logger.warning("Slot " + slot + " przycisku navigation." + type + " jest już zajęty przez inny przycisk - przycisk wyłączony");
+            return -1;
+        }
+        taken[slot] = true;
+        return slot;
+    }
+}
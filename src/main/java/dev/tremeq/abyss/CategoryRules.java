@@ -0,0 +1,185 @@
+package dev.tremeq.abyss;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Kategorie przedmiotów (zakładki GUI), skompilowane do tablicy indeksowanej Material.ordinal()
+ *
+ * Reguły z configu są sprawdzane raz dla każdego materiału przy wczytaniu - przypisanie
+ * kategorii przy dodawaniu przedmiotu to jeden odczyt z tablicy. Kategorie są sprawdzane
+ * w kolejności z configu, wygrywa pierwsza pasująca; materiały bez pasującej reguły trafiają
+ * do ostatniej kategorii.
+ *
+ * Reguła to nazwa materiału, wzorzec z '*' (np. *_SWORD) albo cecha materiału:
+ * '@block' (blok do postawienia) lub '@edible' (jedzenie).
+ */
+public final class CategoryRules {
+    private static final CategoryRules DISABLED = new CategoryRules(List.of(), new byte[0]);
+
+    private final List<Category> categories;
+    // Kategoria każdego materiału
+    private final byte[] categoryOf;
+
+    private CategoryRules(List<Category> categories, byte[] categoryOf) {
+        this.categories = categories;
+        this.categoryOf = categoryOf;
+    }
+
+    /**
+     * Czyta sekcję categories z configu (błędne reguły są zgłaszane do logu i pomijane)
+     */
+    public static CategoryRules load(FileConfiguration config, Logger logger) {
+        if (!config.getBoolean("categories.enabled", true)) {
+            return DISABLED;
+        }
+
+        ConfigurationSection section = config.getConfigurationSection("categories.list");
+        if (section == null) {
+            return DISABLED;
+        }
+
+        List<Category> categories = new ArrayList<>();
+        List<List<Predicate<Material>>> rules = new ArrayList<>();
+        for (String id : section.getKeys(false)) {
+            if (categories.size() == Byte.MAX_VALUE) {
+                logger.warning("Za dużo kategorii w categories.list - pomijam " + id);
+                continue;
+            }
+
+            String iconName = section.getString(id + ".icon", "CHEST");
+            Material icon = Material.matchMaterial(iconName);
+            if (icon == null || !icon.isItem()) {
+                logger.warning("Nieprawidłowa ikona kategorii " + id + ": " + iconName + " - używam CHEST");
+                icon = Material.CHEST;
+            }
+            categories.add(new Category(id, section.getString(id + ".name"), icon));
+
+            List<Predicate<Material>> matchers = new ArrayList<>();
+            for (String rule : section.getStringList(id + ".match")) {
+                Predicate<Material> matcher = compileRule(rule);
+                if (matcher == null) {
+                    logger.warning("Nieprawidłowa reguła kategorii " + id + ": " + rule);
+                    continue;
+                }
+                matchers.add(matcher);
+            }
+            rules.add(matchers);
+        }
+
+        if (categories.isEmpty()) {
+            return DISABLED;
+        }
+
+        Material[] materials = Material.values();
+        byte[] categoryOf = new byte[materials.length];
+        Arrays.fill(categoryOf, (byte) (categories.size() - 1));
+        for (Material material : materials) {
+            if (material.isLegacy()) {
+                continue;
+            }
+            assign:
+            for (int category = 0; category < rules.size(); category++) {
+                for (Predicate<Material> matcher : rules.get(category)) {
+                    if (matcher.test(material)) {
+                        categoryOf[material.ordinal()] = (byte) category;
+                        break assign;
+                    }
+                }
+            }
+        }
+
+        return new CategoryRules(List.copyOf(categories), categoryOf);
+    }
+
+    /**
+     * Kompiluje jedną regułę do sprawdzenia materiału
+     * @return reguła lub null, jeśli jest błędna
+     */
+    private static Predicate<Material> compileRule(String rule) {
+        String normalized = rule.trim().toUpperCase(Locale.ROOT);
+        switch (normalized) {
+            case "@BLOCK" -> {
+                return material -> material.isBlock() && material.isItem();
+            }
+            case "@EDIBLE" -> {
+                return Material::isEdible;
+            }
+            default -> {
+                // Dalej tylko nazwy i wzorce
+            }
+        }
+
+        if (normalized.contains("*")) {
+            Pattern pattern = Pattern.compile(Arrays.stream(normalized.split("\\*", -1))
+                    .map(Pattern::quote)
+                    .reduce((left, right) -> left + ".*" + right)
+                    .orElse(""));
+            return material -> pattern.matcher(material.name()).matches();
+        }
+
+        Material exact = Material.matchMaterial(normalized);
+        return exact != null ? material -> material == exact : null;
+    }
+
+    public boolean isEnabled() {
+        return !categories.isEmpty();
+    }
+
+    /**
+     * Pobiera kategorie w kolejności zakładek
+     */
+    public List<Category> categories() {
+        return categories;
+    }
+
+    /**
+     * Pobiera ilość kategorii
+     */
+    public int size() {
+        return categories.size();
+    }
+
+    /**
+     * Pobiera indeks kategorii o danym kluczu z configu
+     * @return indeks kategorii lub -1, jeśli takiej kategorii nie ma
+     */
+    public int indexOf(String id) {
+        for (int i = 0; i < categories.size(); i++) {
+            if (categories.get(i).id().equals(id)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Pobiera kategorię materiału
+     * @return indeks kategorii lub -1, jeśli kategorie są wyłączone
+     */
+    public int categoryOf(Material material) {
+        if (categories.isEmpty()) {
+            return -1;
+        }
+        int ordinal = material.ordinal();
+        return ordinal < categoryOf.length ? categoryOf[ordinal] : categories.size() - 1;
+    }
+
+    /**
+     * Kategoria przedmiotów - jedna zakładka GUI
+     * @param id klucz z configu (np. blocks)
+     * @param name nazwa z configu (null = nazwa z pliku wiadomości categories.&lt;id&gt;)
+     * @param icon materiał ikony zakładki
+     */
+    public record Category(String id, String name, Material icon) {
+    }
+}
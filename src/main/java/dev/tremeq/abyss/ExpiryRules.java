@@ -0,0 +1,111 @@
+package dev.tremeq.abyss;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Czasy życia przedmiotów w Otchłani, skompilowane do tablicy indeksowanej Material.ordinal()
+ * Sprawdzenie TTL przy dodawaniu przedmiotu to jeden odczyt z tablicy
+ *
+ * Pierwszeństwo: TTL materiału, potem TTL jego kategorii ({@link CategoryRules}), potem domyślny.
+ */
+public final class ExpiryRules {
+    private static final ExpiryRules DISABLED = new ExpiryRules(false, new long[0], 0, 0);
+
+    private final boolean enabled;
+    // TTL w milisekundach dla każdego materiału (0 = nie wygasa)
+    private final long[] ttlMillis;
+    private final long defaultTtlMillis;
+    // Najkrótszy niezerowy TTL - dolne ograniczenie dla wpisów jeszcze nie zdeserializowanych
+    private final long minTtlMillis;
+
+    private ExpiryRules(boolean enabled, long[] ttlMillis, long defaultTtlMillis, long minTtlMillis) {
+        this.enabled = enabled;
+        this.ttlMillis = ttlMillis;
+        this.defaultTtlMillis = defaultTtlMillis;
+        this.minTtlMillis = minTtlMillis;
+    }
+
+    /**
+     * Czyta sekcję expiry z configu (nieznane materiały i kategorie są zgłaszane do logu i pomijane)
+     * @param categories reguły kategorii, przez które rozwiązywane są czasy z expiry.categories
+     */
+    public static ExpiryRules load(FileConfiguration config, CategoryRules categories, Logger logger) {
+        if (!config.getBoolean("expiry.enabled", false)) {
+            return DISABLED;
+        }
+
+        long defaultTtl = Math.max(0L, config.getLong("expiry.default-ttl", 0)) * 1000L;
+        long[] ttl = new long[Material.values().length];
+        Arrays.fill(ttl, defaultTtl);
+
+        ConfigurationSection categorySection = config.getConfigurationSection("expiry.categories");
+        if (categorySection != null) {
+            for (String id : categorySection.getKeys(false)) {
+                int category = categories.indexOf(id);
+                if (category < 0) {
+                    logger.warning("Nieznana kategoria w expiry.categories: " + id);
+                    continue;
+                }
+                long categoryTtl = Math.max(0L, categorySection.getLong(id, 0)) * 1000L;
+                for (Material material : Material.values()) {
+                    if (categories.categoryOf(material) == category) {
+                        ttl[material.ordinal()] = categoryTtl;
+                    }
+                }
+            }
+        }
+
+        ConfigurationSection materials = config.getConfigurationSection("expiry.materials");
+        if (materials != null) {
+            for (String name : materials.getKeys(false)) {
+                Material material = Material.matchMaterial(name);
+                if (material == null) {
+                    logger.warning("Nieznany materiał w expiry.materials: " + name);
+                    continue;
+                }
+                ttl[material.ordinal()] = Math.max(0L, materials.getLong(name, 0)) * 1000L;
+            }
+        }
+
+        long minTtl = 0;
+        for (long value : ttl) {
+            if (value > 0 && (minTtl == 0 || value < minTtl)) {
+                minTtl = value;
+            }
+        }
+
+        // Żaden materiał nie wygasa - nie ma po co utrzymywać koła czasowego
+        if (minTtl == 0) {
+            return DISABLED;
+        }
+        return new ExpiryRules(true, ttl, defaultTtl, minTtl);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Pobiera czas życia przedmiotu danego materiału
+     * @return TTL w milisekundach lub 0, jeśli przedmiot nie wygasa
+     */
+    public long ttlMillis(Material material) {
+        if (!enabled) {
+            return 0;
+        }
+        int ordinal = material.ordinal();
+        return ordinal < ttlMillis.length ? ttlMillis[ordinal] : defaultTtlMillis;
+    }
+
+    /**
+     * Najkrótszy czas życia spośród wszystkich materiałów
+     */
+    public long minTtlMillis() {
+        return minTtlMillis;
+    }
+}
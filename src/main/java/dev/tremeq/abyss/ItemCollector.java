@@ -1,6 +1,7 @@
 package dev.tremeq.abyss;
 
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Item;
@@ -10,12 +11,14 @@ import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Zbiera przedmioty z ziemi i dodaje je do magazynu Otchłani
  */
 public class ItemCollector extends BukkitRunnable {
     private final Abyss plugin;
+    private SlicedSweep activeSweep;
 
     public ItemCollector(Abyss plugin) {
         this.plugin = plugin;
@@ -28,58 +31,163 @@ public class ItemCollector extends BukkitRunnable {
 
     /**
      * Natychmiast zbiera itemy z ziemi (może być wywołane bezpośrednio)
+     * W trybie rozłożonym zbieranie startuje teraz, a kończy się w kolejnych tickach
      */
     public void collectItemsNow() {
-        if (!plugin.getConfig().getBoolean("item-collection.enabled", true)) {
+        if (!plugin.getSettings().collectionEnabled()) {
             return;
         }
 
+        if (plugin.getSettings().slicedSweep()) {
+            startSlicedSweep();
+            return;
+        }
+
+        plugin.getMetrics().recordCollectionRun();
+
         int collectedCount = 0;
         List<ItemStack> collectedItems = new ArrayList<>();
-        List<String> worldBlacklist = plugin.getConfig().getStringList("item-collection.world-blacklist");
+        ItemTracker tracker = plugin.getItemTracker();
+
+        if (tracker.isEnabled()) {
+            // Tylko itemy znane z indeksu (blacklista zastosowana przy indeksowaniu)
+            for (Item item : tracker.getTrackedItems()) {
+                collectedCount += collectTracked(item, collectedItems);
+            }
+        } else {
+            // Iteruj przez wszystkie światy
+            for (World world : getCollectableWorlds()) {
+                long start = System.nanoTime();
+                int scanned = 0;
+                int collected = 0;
+
+                // Zbierz wszystkie entity Item
+                for (Entity entity : world.getEntities()) {
+                    scanned++;
+                    collected += collect(entity, collectedItems);
+                }
+
+                plugin.getMetrics().recordCollection(world.getName(), scanned, collected, System.nanoTime() - start);
+                collectedCount += collected;
+            }
+        }
+
+        // Jeśli coś zebrano, zgłoś do magazynu
+        if (!collectedItems.isEmpty()) {
+            plugin.getAbyssManager().submitAll(collectedItems);
+            finishCollection(collectedItems.size(), collectedCount);
+        }
+    }
+
+    /**
+     * Rozpoczyna zbieranie rozłożone na wiele ticków (jeśli nie trwa już inne)
+     */
+    private void startSlicedSweep() {
+        if (activeSweep != null) {
+            if (plugin.getSettings().debug()) {
+                plugin.getLogger().info("Poprzednie zbieranie jeszcze trwa - pomijam");
+            }
+            return;
+        }
+
+        long budgetNanos = plugin.getSettings().sweepBudgetNanos();
+        plugin.getMetrics().recordCollectionRun();
+
+        ItemTracker tracker = plugin.getItemTracker();
+        if (tracker.isEnabled()) {
+            activeSweep = new TrackedItemSweep(tracker.getTrackedItems(), budgetNanos);
+        } else {
+            activeSweep = new ChunkSweep(getCollectableWorlds(), budgetNanos);
+        }
+        activeSweep.runTaskTimer(plugin, 0L, 1L);
+    }
+
+    /**
+     * Zatrzymuje trwające zbieranie rozłożone (już zebrane itemy zostają w magazynie)
+     */
+    private void stopSlicedSweep() {
+        if (activeSweep != null) {
+            activeSweep.cancel();
+            activeSweep = null;
+        }
+    }
+
+    @Override
+    public synchronized void cancel() throws IllegalStateException {
+        stopSlicedSweep();
+        super.cancel();
+    }
+
+    /**
+     * Pobiera światy, z których zbieramy itemy (bez światów z blacklisty)
+     */
+    private List<World> getCollectableWorlds() {
+        Set<String> worldBlacklist = plugin.getSettings().worldBlacklist();
+        List<World> worlds = new ArrayList<>();
 
-        // Iteruj przez wszystkie światy
         for (World world : Bukkit.getWorlds()) {
             // Sprawdź, czy świat jest na blackliście
             if (worldBlacklist.contains(world.getName())) {
-                if (plugin.getConfig().getBoolean("debug", false)) {
+                if (plugin.getSettings().debug()) {
                     plugin.getLogger().info("Pomijam świat z blacklisty: " + world.getName());
                 }
                 continue;
             }
+            worlds.add(world);
+        }
+        return worlds;
+    }
 
-            // Zbierz wszystkie entity Item
-            for (Entity entity : world.getEntities()) {
-                if (entity instanceof Item item) {
-                    ItemStack itemStack = item.getItemStack();
+    /**
+     * Zbiera pojedyncze entity, jeśli to leżący item
+     * @return ilość zebranych itemów (0 jeśli entity nie zostało zebrane)
+     */
+    private int collect(Entity entity, List<ItemStack> collectedItems) {
+        if (entity instanceof Item item) {
+            // Item z indeksu mógł już zniknąć (lejek, lawa itd.)
+            if (!item.isValid()) {
+                plugin.getItemTracker().untrack(item);
+                return 0;
+            }
 
-                    if (itemStack != null && !itemStack.getType().isAir()) {
-                        // Dodaj do listy zebranych itemów
-                        collectedItems.add(itemStack.clone());
-                        collectedCount += itemStack.getAmount();
+            ItemStack itemStack = item.getItemStack();
 
-                        // Usuń item z ziemi
-                        entity.remove();
-                    }
-                }
+            if (itemStack != null && !itemStack.getType().isAir()) {
+                // Dodaj do listy zebranych itemów
+                collectedItems.add(itemStack.clone());
+
+                // Usuń item z ziemi
+                entity.remove();
+                plugin.getItemTracker().untrack(item);
+                return itemStack.getAmount();
             }
         }
+        return 0;
+    }
 
-        // Jeśli coś zebrano, dodaj do magazynu
-        if (!collectedItems.isEmpty()) {
-            plugin.getAbyssManager().addItems(collectedItems);
-
-            // Odśwież GUI dla wszystkich graczy
-            plugin.getAbyssGUI().refreshAllViewers();
+    /**
+     * Zbiera item z indeksu, zapisując czas w statystykach jego świata
+     */
+    private int collectTracked(Item item, List<ItemStack> collectedItems) {
+        String world = item.getWorld().getName();
+        long start = System.nanoTime();
+        int collected = collect(item, collectedItems);
+        plugin.getMetrics().recordCollection(world, 1, collected, System.nanoTime() - start);
+        return collected;
+    }
 
-            // Powiadom graczy, jeśli włączone
-            if (plugin.getConfig().getBoolean("item-collection.notify-players", true)) {
-                notifyPlayers(collectedCount);
-            }
+    /**
+     * Kończy cykl zbierania - powiadomienie graczy
+     * GUI odświeża zapis paczki z kolejki przyjęć
+     */
+    private void finishCollection(int stacks, int collectedCount) {
+        // Powiadom graczy, jeśli włączone
+        if (plugin.getSettings().notifyPlayers()) {
+            notifyPlayers(collectedCount);
+        }
 
-            if (plugin.getConfig().getBoolean("debug", false)) {
-                plugin.getLogger().info("Zebrano " + collectedItems.size() + " stosów przedmiotów (" + collectedCount + " itemów)");
-            }
+        if (plugin.getSettings().debug()) {
+            plugin.getLogger().info("Zebrano " + stacks + " stosów przedmiotów (" + collectedCount + " itemów)");
         }
     }
 
@@ -99,7 +207,7 @@ public class ItemCollector extends BukkitRunnable {
      * Uruchamia task zbierania itemów
      */
     public void start() {
-        int interval = plugin.getConfig().getInt("item-collection.interval", 60);
+        int interval = plugin.getSettings().collectionInterval();
         // Konwertuj sekundy na ticki (20 ticków = 1 sekunda)
         long intervalTicks = interval * 20L;
 
@@ -108,4 +216,136 @@ public class ItemCollector extends BukkitRunnable {
 
         plugin.getLogger().info("ItemCollector uruchomiony (interwał: " + interval + " sekund)");
     }
+
+    /**
+     * Zbieranie rozłożone na wiele ticków
+     * W każdym ticku przesuwa kursor do wyczerpania budżetu czasu
+     * i oddaje zebrane itemy do magazynu jedną paczką
+     */
+    private abstract class SlicedSweep extends BukkitRunnable {
+        private final long budgetNanos;
+        private int collectedStacks;
+        private int collectedCount;
+        private int ticks;
+
+        SlicedSweep(long budgetNanos) {
+            this.budgetNanos = budgetNanos;
+        }
+
+        /**
+         * Przetwarza kolejną porcję pracy
+         * @return ilość zebranych itemów lub -1, gdy kursor doszedł do końca
+         */
+        protected abstract int step(List<ItemStack> batch);
+
+        @Override
+        public void run() {
+            long deadline = System.nanoTime() + budgetNanos;
+            List<ItemStack> batch = new ArrayList<>();
+            boolean finished = false;
+            ticks++;
+
+            while (System.nanoTime() < deadline) {
+                int collected = step(batch);
+                if (collected < 0) {
+                    finished = true;
+                    break;
+                }
+                collectedCount += collected;
+            }
+
+            if (!batch.isEmpty()) {
+                plugin.getAbyssManager().submitAll(batch);
+                collectedStacks += batch.size();
+            }
+
+            if (finished) {
+                cancel();
+                activeSweep = null;
+
+                if (plugin.getSettings().debug()) {
+                    plugin.getLogger().info("Zbieranie rozłożone zakończone w " + ticks + " tickach");
+                }
+                if (collectedStacks > 0) {
+                    finishCollection(collectedStacks, collectedCount);
+                }
+            }
+        }
+    }
+
+    /**
+     * Kursor po światach i ich załadowanych chunkach (pełne skanowanie entity)
+     */
+    private class ChunkSweep extends SlicedSweep {
+        private final List<World> worlds;
+        private int worldIndex;
+        private String worldName;
+        private Chunk[] chunks;
+        private int chunkIndex;
+
+        ChunkSweep(List<World> worlds, long budgetNanos) {
+            super(budgetNanos);
+            this.worlds = worlds;
+        }
+
+        @Override
+        protected int step(List<ItemStack> batch) {
+            // Przejdź do następnego świata, gdy skończyły się chunki bieżącego
+            if (chunks == null || chunkIndex >= chunks.length) {
+                if (worldIndex >= worlds.size()) {
+                    return -1;
+                }
+                World world = worlds.get(worldIndex++);
+                worldName = world.getName();
+                chunks = world.getLoadedChunks();
+                chunkIndex = 0;
+                return 0;
+            }
+
+            Chunk chunk = chunks[chunkIndex++];
+            // Chunk mógł zostać wyładowany od pobrania listy
+            if (!chunk.isLoaded()) {
+                return 0;
+            }
+
+            long start = System.nanoTime();
+            Entity[] entities = chunk.getEntities();
+            int collected = 0;
+            for (Entity entity : entities) {
+                collected += collect(entity, batch);
+            }
+            plugin.getMetrics().recordCollection(worldName, entities.length, collected, System.nanoTime() - start);
+            return collected;
+        }
+    }
+
+    /**
+     * Kursor po itemach z indeksu {@link ItemTracker}
+     */
+    private class TrackedItemSweep extends SlicedSweep {
+        // Co tyle itemów sprawdzamy zegar - System.nanoTime() też kosztuje
+        private static final int ITEMS_PER_STEP = 32;
+
+        private final List<Item> items;
+        private int index;
+
+        TrackedItemSweep(List<Item> items, long budgetNanos) {
+            super(budgetNanos);
+            this.items = items;
+        }
+
+        @Override
+        protected int step(List<ItemStack> batch) {
+            if (index >= items.size()) {
+                return -1;
+            }
+
+            int end = Math.min(index + ITEMS_PER_STEP, items.size());
+            int collected = 0;
+            for (; index < end; index++) {
+                collected += collectTracked(items.get(index), batch);
+            }
+            return collected;
+        }
+    }
 }
@@ -0,0 +1,138 @@
+package dev.tremeq.abyss;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Item;
+
+import java.util.*;
+
+/**
+ * Indeks leżących na ziemi itemów, utrzymywany na podstawie eventów
+ * Dzięki niemu zbieranie nie musi przechodzić po wszystkich entity świata
+ * (moby, armor standy itd.) - tylko po itemach, o których wiadomo, że istnieją
+ */
+public class ItemTracker {
+    private final Abyss plugin;
+    private final Map<UUID, Set<Item>> itemsByWorld;
+    private Set<String> worldBlacklist;
+    private boolean enabled;
+
+    public ItemTracker(Abyss plugin) {
+        this.plugin = plugin;
+        this.itemsByWorld = new HashMap<>();
+        this.worldBlacklist = new HashSet<>();
+    }
+
+    /**
+     * Wczytuje ustawienia i buduje indeks od nowa (start pluginu, przeładowanie)
+     * Jedyne miejsce, w którym przechodzimy po wszystkich entity
+     */
+    public void reload() {
+        itemsByWorld.clear();
+        enabled = plugin.getSettings().collectionEnabled() && plugin.getSettings().eventTracking();
+        worldBlacklist = plugin.getSettings().worldBlacklist();
+
+        if (!enabled) {
+            return;
+        }
+
+        for (World world : Bukkit.getWorlds()) {
+            if (!worldBlacklist.contains(world.getName())) {
+                for (Item item : world.getEntitiesByClass(Item.class)) {
+                    track(item);
+                }
+            }
+        }
+
+        if (plugin.getSettings().debug()) {
+            plugin.getLogger().info("Zindeksowano " + size() + " leżących itemów");
+        }
+    }
+
+    /**
+     * Sprawdza, czy śledzenie itemów jest włączone
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Dodaje item do indeksu (światy z blacklisty są pomijane)
+     */
+    public void track(Item item) {
+        if (!enabled) {
+            return;
+        }
+
+        World world = item.getWorld();
+        if (worldBlacklist.contains(world.getName())) {
+            return;
+        }
+        itemsByWorld.computeIfAbsent(world.getUID(), uuid -> new HashSet<>()).add(item);
+    }
+
+    /**
+     * Usuwa item z indeksu
+     */
+    public void untrack(Item item) {
+        Set<Item> items = itemsByWorld.get(item.getWorld().getUID());
+        if (items != null) {
+            items.remove(item);
+        }
+    }
+
+    /**
+     * Dodaje do indeksu itemy spośród podanych entity (załadowanie chunka)
+     */
+    public void trackAll(List<Entity> entities) {
+        if (!enabled) {
+            return;
+        }
+        for (Entity entity : entities) {
+            if (entity instanceof Item item) {
+                track(item);
+            }
+        }
+    }
+
+    /**
+     * Usuwa z indeksu itemy spośród podanych entity (wyładowanie chunka)
+     */
+    public void untrackAll(List<Entity> entities) {
+        for (Entity entity : entities) {
+            if (entity instanceof Item item) {
+                untrack(item);
+            }
+        }
+    }
+
+    /**
+     * Usuwa wszystkie itemy świata z indeksu (wyładowanie świata)
+     */
+    public void untrackWorld(World world) {
+        itemsByWorld.remove(world.getUID());
+    }
+
+    /**
+     * Pobiera kopię listy śledzonych itemów ze wszystkich światów
+     */
+    public List<Item> getTrackedItems() {
+        List<Item> items = new ArrayList<>(size());
+        for (Set<Item> worldItems : itemsByWorld.values()) {
+            items.addAll(worldItems);
+        }
+        return items;
+    }
+
+    /**
+     * Pobiera ilość śledzonych itemów
+     */
+    public int size() {
+        int size = 0;
+        for (Set<Item> worldItems : itemsByWorld.values()) {
+            size += worldItems.size();
+        }
+        return size;
+    }
+}
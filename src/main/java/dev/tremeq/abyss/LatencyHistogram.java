@@ -0,0 +1,106 @@
+package dev.tremeq.abyss;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram czasów w nanosekundach o stałej względnej dokładności (jak HdrHistogram)
+ *
+ * Każda potęga dwójki jest podzielona na 8 równych kubełków, więc błąd odczytu percentyla to
+ * najwyżej 12,5% wartości - od nanosekund do godzin w 488 licznikach. Zapis to wyznaczenie
+ * kubełka z liczby wiodących zer i jedno atomowe zwiększenie, bez blokad i alokacji.
+ * Odczyt (komenda, eksport) przegląda wszystkie kubełki.
+ */
+public final class LatencyHistogram {
+    // 2^3 = 8 kubełków na każdą potęgę dwójki
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Zapisuje jeden pomiar
+     * @param nanos czas w nanosekundach (wartości ujemne są liczone jako 0)
+     */
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Pobiera sumę wszystkich pomiarów w nanosekundach
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Pobiera największy pomiar w nanosekundach
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Pobiera percentyl w nanosekundach (górna granica kubełka, w którym leży)
+     * @param percentile percentyl 0-100 (np. 99.9)
+     * @return wartość lub 0, jeśli nie ma pomiarów
+     */
+    public long getPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1L, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBound(bucket), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Kubełek wartości: wartości poniżej 8 mają własne kubełki, większe - 8 na każdą potęgę dwójki
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * Największa wartość, która trafia do kubełka
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        int sub = bucket % SUB_COUNT;
+        if (exponent >= 62) {
+            // Ostatnia potęga dwójki - górna granica nie mieści się w long
+            return Long.MAX_VALUE;
+        }
+        long width = 1L << (exponent - SUB_BITS);
+        return ((long) (SUB_COUNT + sub) << (exponent - SUB_BITS)) + width - 1;
+    }
+}
@@ -1,7 +1,6 @@
 package dev.tremeq.abyss;
 
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 
@@ -11,6 +10,8 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -20,6 +21,10 @@ import java.util.regex.Pattern;
 public class MessageManager {
     private final Abyss plugin;
     private FileConfiguration messages;
+    // Wiadomości skompilowane przy loadMessages() - podmieniane w całości przy przeładowaniu
+    private volatile Map<String, MessageTemplate> templates = new ConcurrentHashMap<>();
+    private volatile Map<String, List<MessageTemplate>> listTemplates = new ConcurrentHashMap<>();
+    private String prefix = "";
     private final Pattern HEX_PATTERN = Pattern.compile("&#([A-Fa-f0-9]{6})");
 
     public MessageManager(Abyss plugin) {
@@ -64,97 +69,130 @@ public class MessageManager {
         }
 
         messages = YamlConfiguration.loadConfiguration(messagesFile);
+        compileTemplates();
         plugin.getLogger().info("Załadowano wiadomości z pliku: " + fileName);
     }
 
     /**
-     * Pobiera wiadomość z pliku i stosuje kolory
+     * Kompiluje wszystkie wiadomości z pliku do gotowych szablonów
+     * Kolory i {prefix} są rozwiązywane tutaj, a nie przy każdym wywołaniu getMessage
      */
-    public String getMessage(String path) {
-        String message = messages.getString(path, "&cBrak wiadomości: " + path);
+    private void compileTemplates() {
+        Map<String, MessageTemplate> compiled = new ConcurrentHashMap<>();
+        Map<String, List<MessageTemplate>> compiledLists = new ConcurrentHashMap<>();
+
+        String prefix = colorize(messages.getString("prefix", ""));
+        for (String path : messages.getKeys(true)) {
+            if (messages.isString(path)) {
+                compiled.put(path, compileMessage(messages.getString(path), prefix));
+            } else if (messages.isList(path)) {
+                compiledLists.put(path, compileList(messages.getStringList(path)));
+            }
+        }
+
+        this.prefix = prefix;
+        this.templates = compiled;
+        this.listTemplates = compiledLists;
+    }
 
-        // Podstaw {prefix} zawsze
-        String prefix = messages.getString("prefix", "");
-        message = message.replace("{prefix}", colorize(prefix));
+    private MessageTemplate compileMessage(String raw, String prefix) {
+        return MessageTemplate.compile(colorize(raw.replace("{prefix}", prefix)));
+    }
 
-        return colorize(message);
+    private List<MessageTemplate> compileList(List<String> rawList) {
+        List<MessageTemplate> compiled = new ArrayList<>(rawList.size());
+        for (String line : rawList) {
+            compiled.add(MessageTemplate.compile(colorize(line)));
+        }
+        return List.copyOf(compiled);
     }
 
     /**
-     * Pobiera wiadomość z podstawieniami zmiennych
+     * Pobiera skompilowany szablon wiadomości
+     * Brakujące ścieżki dostają szablon "Brak wiadomości" (też zapamiętany)
      */
-    public String getMessage(String path, String... replacements) {
-        String message = getMessage(path);  // Prefix już podstawiony w getMessage(path)
+    public MessageTemplate getTemplate(String path) {
+        if (path == null) {
+            return compileMessage("&cBrak wiadomości: null", prefix);
+        }
+        return templates.computeIfAbsent(path, missing -> {
+            // Np. liczby w pliku wiadomości - nie są stringami, ale getString je zwraca
+            String raw = messages.getString(missing);
+            return compileMessage(raw != null ? raw : "&cBrak wiadomości: " + missing, prefix);
+        });
+    }
 
-        // Podstaw inne zmienne (pary: klucz, wartość)
-        for (int i = 0; i < replacements.length - 1; i += 2) {
-            String key = replacements[i];
-            String value = replacements[i + 1];
-            message = message.replace("{" + key + "}", value);
+    /**
+     * Pobiera skompilowane szablony listy wiadomości (np. lore)
+     */
+    public List<MessageTemplate> getListTemplates(String path) {
+        if (path == null) {
+            return List.of();
         }
+        return listTemplates.getOrDefault(path, List.of());
+    }
 
-        return message;
+    /**
+     * Pobiera wiadomość z pliku i stosuje kolory
+     */
+    public String getMessage(String path) {
+        return getTemplate(path).render();
+    }
+
+    /**
+     * Pobiera wiadomość z podstawieniami zmiennych (pary: klucz, wartość)
+     */
+    public String getMessage(String path, String... replacements) {
+        return getTemplate(path).render(replacements);
     }
 
     /**
      * Pobiera listę wiadomości (np. lore)
      */
     public List<String> getMessageList(String path) {
-        List<String> rawList = messages.getStringList(path);
-        List<String> colorized = new ArrayList<>();
-
-        for (String line : rawList) {
-            colorized.add(colorize(line));
-        }
-
-        return colorized;
+        return getMessageList(path, new String[0]);
     }
 
     /**
      * Pobiera listę wiadomości z podstawieniami
      */
     public List<String> getMessageList(String path, String... replacements) {
-        List<String> list = getMessageList(path);
-        List<String> result = new ArrayList<>();
-
-        for (String line : list) {
-            String replaced = line;
-
-            // Podstaw zmienne
-            for (int i = 0; i < replacements.length - 1; i += 2) {
-                String key = replacements[i];
-                String value = replacements[i + 1];
-                replaced = replaced.replace("{" + key + "}", value);
-            }
+        List<MessageTemplate> lines = getListTemplates(path);
+        List<String> result = new ArrayList<>(lines.size());
 
-            result.add(replaced);
+        for (MessageTemplate line : lines) {
+            result.add(line.render(replacements));
         }
 
         return result;
     }
 
     /**
-     * Konwertuje string z kolorami na Adventure Component
+     * Pobiera wiadomość jako Adventure Component (bez podstawień - z pamięci podręcznej)
      */
     public Component getComponent(String path) {
-        String message = getMessage(path);
-        return parseComponent(message);
+        return getTemplate(path).component();
     }
 
     /**
-     * Konwertuje string z kolorami na Adventure Component z podstawieniami
+     * Pobiera wiadomość jako Adventure Component z podstawieniami
      */
     public Component getComponent(String path, String... replacements) {
-        String message = getMessage(path, replacements);
-        return parseComponent(message);
+        return getTemplate(path).component(replacements);
     }
 
     /**
-     * Parsuje string do Adventure Component
+     * Pobiera listę wiadomości jako Adventure Componenty (np. lore przedmiotu)
      */
-    private Component parseComponent(String text) {
-        // Adventure API automatycznie obsługuje & kody
-        return LegacyComponentSerializer.legacyAmpersand().deserialize(text);
+    public List<Component> getComponentList(String path, String... replacements) {
+        List<MessageTemplate> lines = getListTemplates(path);
+        List<Component> result = new ArrayList<>(lines.size());
+
+        for (MessageTemplate line : lines) {
+            result.add(line.component(replacements));
+        }
+
+        return result;
     }
 
     /**
@@ -179,7 +217,7 @@ public class MessageManager {
      */
     private String translateHexCodes(String text) {
         Matcher matcher = HEX_PATTERN.matcher(text);
-        StringBuffer buffer = new StringBuffer();
+        StringBuilder buffer = new StringBuilder();
 
         while (matcher.find()) {
             String hexCode = matcher.group(1);
@@ -0,0 +1,153 @@
+package dev.tremeq.abyss;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Skompilowana wiadomość - tekst już pokolorowany, z prefiksem podstawionym
+ * i podzielony na stałe fragmenty oraz zmienne {nazwa}
+ *
+ * Renderowanie z podstawieniami to jedno przejście po fragmentach do bufora
+ * o z góry policzonym rozmiarze.
+ */
+public final class MessageTemplate {
+    // Kody § wraz z HEX w formacie §x§R§R§G§G§B§B (tak jak produkuje MessageManager.colorize)
+    private static final LegacyComponentSerializer SERIALIZER = LegacyComponentSerializer.builder()
+            .character('§')
+            .hexColors()
+            .useUnusualXRepeatedCharacterHexFormat()
+            .build();
+
+    private final String text;
+    // literals.length == keys.length + 1; zmienna keys[i] leży między literals[i] i literals[i + 1]
+    private final String[] literals;
+    private final String[] keys;
+    private final int literalLength;
+    private Component component;
+
+    private MessageTemplate(String text, String[] literals, String[] keys) {
+        this.text = text;
+        this.literals = literals;
+        this.keys = keys;
+
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Kompiluje pokolorowany tekst - wyszukuje zmienne {nazwa} i zapamiętuje ich pozycje
+     */
+    public static MessageTemplate compile(String text) {
+        List<String> literals = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+
+        int literalStart = 0;
+        int index = 0;
+        while ((index = text.indexOf('{', index)) >= 0) {
+            int end = findPlaceholderEnd(text, index + 1);
+            if (end < 0) {
+                index++;
+                continue;
+            }
+
+            literals.add(text.substring(literalStart, index));
+            keys.add(text.substring(index + 1, end));
+            literalStart = end + 1;
+            index = literalStart;
+        }
+        literals.add(text.substring(literalStart));
+
+        return new MessageTemplate(text, literals.toArray(new String[0]), keys.toArray(new String[0]));
+    }
+
+    /**
+     * Szuka zamknięcia zmiennej - nazwa może zawierać tylko litery, cyfry, '_' i '-'
+     * @return indeks '}' lub -1, jeśli to nie jest zmienna
+     */
+    private static int findPlaceholderEnd(String text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '}') {
+                return i > from ? i : -1;
+            }
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Pobiera tekst bez podstawień
+     */
+    public String render() {
+        return text;
+    }
+
+    /**
+     * Renderuje tekst z podstawieniami (pary: klucz, wartość)
+     * Zmienne bez podanej wartości zostają w tekście bez zmian
+     */
+    public String render(String... replacements) {
+        if (keys.length == 0 || replacements.length < 2) {
+            return text;
+        }
+
+        // Policz dokładną długość wyniku, żeby bufor nie musiał rosnąć
+        int length = literalLength;
+        for (String key : keys) {
+            String value = find(key, replacements);
+            length += value != null ? value.length() : key.length() + 2;
+        }
+
+        StringBuilder builder = new StringBuilder(length);
+        builder.append(literals[0]);
+        for (int i = 0; i < keys.length; i++) {
+            String value = find(keys[i], replacements);
+            if (value != null) {
+                builder.append(value);
+            } else {
+                builder.append('{').append(keys[i]).append('}');
+            }
+            builder.append(literals[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Pobiera tekst bez podstawień jako Adventure Component (tworzony raz)
+     */
+    public Component component() {
+        Component cached = component;
+        if (cached == null) {
+            cached = SERIALIZER.deserialize(text);
+            component = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Renderuje tekst z podstawieniami jako Adventure Component
+     */
+    public Component component(String... replacements) {
+        if (keys.length == 0 || replacements.length < 2) {
+            return component();
+        }
+        return SERIALIZER.deserialize(render(replacements));
+    }
+
+    private static String find(String key, String[] replacements) {
+        for (int i = 0; i < replacements.length - 1; i += 2) {
+            if (key.equals(replacements[i])) {
+                return replacements[i + 1];
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,206 @@
+package dev.tremeq.abyss;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+
+/**
+ * Eksport metryk w formacie tekstowym Prometheusa
+ *
+ * Metryki są składane dopiero przy odczycie (pull) - serwer HTTP na 127.0.0.1 odpowiada na
+ * GET /metrics, a zapis do pliku co kilka sekund idzie w tle. Nic nie jest liczone na głównym wątku.
+ */
+public class MetricsExporter {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Abyss plugin;
+    private HttpServer server;
+    private ExecutorService executor;
+    private BukkitTask fileTask;
+
+    public MetricsExporter(Abyss plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Uruchamia serwer HTTP i zapis do pliku zgodnie z ustawieniami
+     */
+    public void start() {
+        AbyssSettings settings = plugin.getSettings();
+
+        if (settings.metricsHttpPort() > 0) {
+            try {
+                // Tylko localhost - metryki nie są wystawiane na zewnątrz
+                server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), settings.metricsHttpPort()), 0);
+                server.createContext("/metrics", this::handle);
+                executor = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "Abyss-Metrics");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                server.setExecutor(executor);
+                server.start();
+                plugin.getLogger().info("Metryki dostępne pod http://127.0.0.1:" + settings.metricsHttpPort() + "/metrics");
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Nie można uruchomić serwera metryk na porcie " + settings.metricsHttpPort(), e);
+                stop();
+            }
+        }
+
+        if (settings.metricsFile() != null) {
+            File file = new File(plugin.getDataFolder(), settings.metricsFile());
+            long intervalTicks = settings.metricsFileInterval() * 20L;
+            fileTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> writeFile(file), intervalTicks, intervalTicks);
+        }
+    }
+
+    /**
+     * Zatrzymuje serwer HTTP i zapis do pliku
+     */
+    public void stop() {
+        if (fileTask != null) {
+            fileTask.cancel();
+            fileTask = null;
+        }
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Zapisuje metryki do pliku (najpierw do pliku tymczasowego - czytelnik nie zobaczy połowy)
+     */
+    private void writeFile(File file) {
+        try {
+            File tmp = new File(file.getPath() + ".tmp");
+            Files.writeString(tmp.toPath(), render(), StandardCharsets.UTF_8);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Nie można zapisać metryk do " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Składa wszystkie metryki w formacie tekstowym Prometheusa
+     */
+    public String render() {
+        AbyssMetrics metrics = plugin.getMetrics();
+        AbyssManager manager = plugin.getAbyssManager();
+        StringBuilder out = new StringBuilder(4096);
+
+        gauge(out, "abyss_storage_items", "Stacks stored in the Abyss", manager.getItemCount());
+        gauge(out, "abyss_storage_bytes", "Estimated size of stored items in bytes", manager.getEstimatedBytes());
+
+        counter(out, "abyss_refresh_requests_total", "GUI refresh requests", metrics.getRefreshRequests());
+        counter(out, "abyss_refresh_flushes_total", "GUI refreshes actually performed", metrics.getRefreshFlushes());
+        counter(out, "abyss_refresh_viewers_total", "Viewers refreshed", metrics.getRefreshedViewers());
+        counter(out, "abyss_refresh_slots_written_total", "Inventory slots changed by refreshes", metrics.getSlotsWritten());
+        summary(out, "abyss_refresh_duration_seconds", "Time to refresh all GUI viewers", metrics.getRefreshTimes());
+        summary(out, "abyss_click_duration_seconds", "Time to handle a click in the GUI", metrics.getClickTimes());
+        summary(out, "abyss_lock_wait_seconds", "Time spent waiting for the storage lock", metrics.getLockWaits());
+
+        counter(out, "abyss_evictions_total", "Items removed over the capacity limit", metrics.getEvictions());
+        counter(out, "abyss_evicted_bytes_total", "Estimated bytes removed over the capacity limit", metrics.getEvictedBytes());
+        counter(out, "abyss_expirations_total", "Items removed after their time-to-live", metrics.getExpirations());
+
+        gauge(out, "abyss_ingest_queue_depth", "Items waiting in the ingestion queue", manager.getIngestBacklog());
+        counter(out, "abyss_ingest_submitted_total", "Items submitted to the ingestion queue", metrics.getIngestSubmitted());
+        counter(out, "abyss_ingest_overflow_total", "Items that found the ingestion ring buffer full", metrics.getIngestOverflows());
+        counter(out, "abyss_ingest_batches_total", "Ingestion batches written to storage", metrics.getIngestBatches());
+        counter(out, "abyss_ingest_drained_total", "Items written to storage from the ingestion queue", metrics.getIngestDrained());
+
+        counter(out, "abyss_collection_runs_total", "Ground item collections started", metrics.getCollectionRuns());
+        Map<String, AbyssMetrics.WorldCollection> worlds = metrics.getWorldCollections();
+        header(out, "abyss_collection_entities_scanned_total", "Entities checked by item collection", "counter");
+        worlds.forEach((world, stats) -> sample(out, "abyss_collection_entities_scanned_total", world, stats.getScanned()));
+        header(out, "abyss_collection_items_collected_total", "Items collected from the ground", "counter");
+        worlds.forEach((world, stats) -> sample(out, "abyss_collection_items_collected_total", world, stats.getCollected()));
+        header(out, "abyss_collection_seconds_total", "Time spent collecting items", "counter");
+        worlds.forEach((world, stats) -> sample(out, "abyss_collection_seconds_total", world, seconds(stats.getNanos())));
+
+        return out.toString();
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        header(out, name, help, "gauge");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, help, "counter");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Percentyle histogramu jako summary oraz największa wartość jako osobny gauge
+     */
+    private static void summary(StringBuilder out, String name, String help, LatencyHistogram histogram) {
+        header(out, name, help, "summary");
+        for (double quantile : QUANTILES) {
+            out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(seconds(histogram.getPercentile(quantile * 100))).append('\n');
+        }
+        out.append(name).append("_sum ").append(seconds(histogram.getSum())).append('\n');
+        out.append(name).append("_count ").append(histogram.getCount()).append('\n');
+
+        String maxName = name.replace("_seconds", "_max_seconds");
+        header(out, maxName, help + " (maximum)", "gauge");
+        out.append(maxName).append(' ').append(seconds(histogram.getMax())).append('\n');
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String world, Object value) {
+        out.append(name).append("{world=\"").append(escape(world)).append("\"} ").append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    /**
+     * Escapowanie wartości etykiety (ukośnik, cudzysłów, nowa linia)
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,76 @@
+package dev.tremeq.abyss;
+
+import org.bukkit.scheduler.BukkitRunnable;
+
+/**
+ * Łączy żądania odświeżenia GUI w jedno odświeżenie na tick (lub co N ticków)
+ * Dodanie, zabranie, shift-click i zbieranie tylko oznaczają GUI jako nieaktualne,
+ * a zmienione strony wylicza {@link AbyssGUI#refreshAllViewers()} przy wykonaniu
+ */
+public class RefreshScheduler extends BukkitRunnable {
+    private final Abyss plugin;
+    private boolean dirty;
+    private boolean running;
+
+    public RefreshScheduler(Abyss plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Zgłasza, że zawartość Otchłani się zmieniła
+     */
+    public void requestRefresh() {
+        plugin.getMetrics().recordRefreshRequest();
+
+        // Bez działającego taska (interwał 0) odświeżamy od razu
+        if (!running) {
+            flush();
+            return;
+        }
+        dirty = true;
+    }
+
+    @Override
+    public void run() {
+        if (dirty) {
+            flush();
+        }
+    }
+
+    /**
+     * Wykonuje zaległe odświeżenie natychmiast
+     */
+    public void flush() {
+        dirty = false;
+        plugin.getMetrics().recordRefreshFlush();
+        plugin.getAbyssGUI().refreshAllViewers();
+    }
+
+    /**
+     * Uruchamia task odświeżania
+     */
+    public void start() {
+        int interval = plugin.getSettings().refreshIntervalTicks();
+        if (interval <= 0) {
+            return;
+        }
+
+        this.runTaskTimer(plugin, interval, interval);
+        running = true;
+    }
+
+    /**
+     * Zatrzymuje task, wykonując ewentualne zaległe odświeżenie
+     */
+    public void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        cancel();
+        if (dirty) {
+            flush();
+        }
+    }
+}
@@ -1,6 +1,13 @@
 package dev.tremeq.abyss.commands;
 
 import dev.tremeq.abyss.Abyss;
+import dev.tremeq.abyss.AbyssManager;
+import dev.tremeq.abyss.AbyssMetrics;
+import dev.tremeq.abyss.LatencyHistogram;
+import dev.tremeq.abyss.MessageManager;
+import dev.tremeq.abyss.storage.SearchQuery;
+import dev.tremeq.abyss.storage.SearchResult;
+import org.bukkit.Material;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -8,12 +15,20 @@ import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Komenda do otwierania GUI Otchłani
+ * /abyss search <tekst> i /abyss filter [materiał] otwierają GUI z samymi pasującymi przedmiotami
+ * /abyss stats pokazuje liczniki i czasy działania pluginu (także z konsoli)
  */
 public class AbyssCommand implements CommandExecutor, TabCompleter {
+    private static final List<String> SUBCOMMANDS = List.of("search", "szukaj", "filter", "filtr");
+    private static final List<String> STATS_SUBCOMMANDS = List.of("stats", "statystyki");
+
     private final Abyss plugin;
 
     public AbyssCommand(Abyss plugin) {
@@ -22,6 +37,12 @@ public class AbyssCommand implements CommandExecutor, TabCompleter {
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        // Statystyki nie wymagają GUI - dostępne także z konsoli
+        if (args.length > 0 && STATS_SUBCOMMANDS.contains(args[0].toLowerCase(Locale.ROOT))) {
+            handleStats(sender);
+            return true;
+        }
+
         // Sprawdź, czy to gracz
         if (!(sender instanceof Player player)) {
             sender.sendMessage(plugin.getMessageManager().getMessage("commands.only-players"));
@@ -40,6 +61,11 @@ public class AbyssCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
+        if (args.length > 0) {
+            handleSearch(player, label, args);
+            return true;
+        }
+
         // Otwórz GUI
         plugin.getAbyssGUI().openGUI(player);
         player.sendMessage(plugin.getMessageManager().getMessage("commands.gui-opened"));
@@ -47,8 +73,165 @@ public class AbyssCommand implements CommandExecutor, TabCompleter {
         return true;
     }
 
+    /**
+     * Obsługuje /abyss search i /abyss filter
+     * Oba warunki łączą się z poprzednim wyszukiwaniem gracza (np. filtr materiału + tekst)
+     */
+    private void handleSearch(Player player, String label, String[] args) {
+        MessageManager messages = plugin.getMessageManager();
+        AbyssManager manager = plugin.getAbyssManager();
+        String subcommand = args[0].toLowerCase(Locale.ROOT);
+
+        if (!SUBCOMMANDS.contains(subcommand)) {
+            player.sendMessage(messages.getMessage("search.usage", "label", label));
+            return;
+        }
+
+        if (!manager.isSearchEnabled()) {
+            player.sendMessage(messages.getMessage("search.disabled"));
+            return;
+        }
+
+        SearchQuery previous = plugin.getAbyssGUI().getQuery(player);
+        Material material = previous != null ? previous.material() : null;
+        String text = previous != null ? previous.text() : "";
+
+        if (subcommand.equals("search") || subcommand.equals("szukaj")) {
+            text = String.join(" ", Arrays.copyOfRange(args, 1, args.length)).trim();
+        } else if (args.length > 1) {
+            material = Material.matchMaterial(args[1]);
+            if (material == null || !material.isItem()) {
+                player.sendMessage(messages.getMessage("search.unknown-material", "material", args[1]));
+                return;
+            }
+        } else {
+            material = null;
+        }
+
+        SearchQuery query = SearchQuery.of(material, text);
+        if (query.isEmpty()) {
+            plugin.getAbyssGUI().openGUI(player);
+            player.sendMessage(messages.getMessage("search.cleared"));
+            return;
+        }
+
+        SearchResult result = manager.search(query);
+        int count = result != null ? result.size() : 0;
+        String description = describe(query);
+        if (count == 0) {
+            player.sendMessage(messages.getMessage("search.no-results", "query", description));
+        } else {
+            player.sendMessage(messages.getMessage("search.results",
+                    "count", String.valueOf(count),
+                    "query", description));
+        }
+        if (manager.isIndexing()) {
+            player.sendMessage(messages.getMessage("search.indexing"));
+        }
+
+        // GUI otwieramy także bez wyników - nowe pasujące przedmioty pojawią się przy odświeżeniu
+        plugin.getAbyssGUI().openGUI(player, 0, query);
+    }
+
+    /**
+     * Obsługuje /abyss stats - migawka liczników i percentyli czasów
+     */
+    private void handleStats(CommandSender sender) {
+        MessageManager messages = plugin.getMessageManager();
+        if (!sender.hasPermission("devotchlan.stats")) {
+            sender.sendMessage(messages.getMessage("commands.no-permission"));
+            return;
+        }
+
+        AbyssMetrics metrics = plugin.getMetrics();
+        AbyssManager manager = plugin.getAbyssManager();
+        LatencyHistogram refreshTimes = metrics.getRefreshTimes();
+        LatencyHistogram clickTimes = metrics.getClickTimes();
+        LatencyHistogram lockWaits = metrics.getLockWaits();
+
+        sender.sendMessage(messages.getMessage("stats.header"));
+        sender.sendMessage(messages.getMessage("stats.storage",
+                "items", String.valueOf(manager.getItemCount()),
+                "size", String.valueOf(manager.getEstimatedBytes() / 1024)));
+        sender.sendMessage(messages.getMessage("stats.refresh",
+                "flushes", String.valueOf(metrics.getRefreshFlushes()),
+                "viewers", String.valueOf(metrics.getRefreshedViewers()),
+                "slots", String.valueOf(metrics.getSlotsWritten()),
+                "p99", millis(refreshTimes.getPercentile(99)),
+                "max", millis(refreshTimes.getMax())));
+        sender.sendMessage(messages.getMessage("stats.clicks",
+                "count", String.valueOf(clickTimes.getCount()),
+                "p50", millis(clickTimes.getPercentile(50)),
+                "p99", millis(clickTimes.getPercentile(99)),
+                "max", millis(clickTimes.getMax())));
+        sender.sendMessage(messages.getMessage("stats.lock",
+                "count", String.valueOf(lockWaits.getCount()),
+                "p99", millis(lockWaits.getPercentile(99)),
+                "max", millis(lockWaits.getMax())));
+        sender.sendMessage(messages.getMessage("stats.ingest",
+                "submitted", String.valueOf(metrics.getIngestSubmitted()),
+                "batches", String.valueOf(metrics.getIngestBatches()),
+                "backlog", String.valueOf(manager.getIngestBacklog()),
+                "overflows", String.valueOf(metrics.getIngestOverflows())));
+        sender.sendMessage(messages.getMessage("stats.collection",
+                "runs", String.valueOf(metrics.getCollectionRuns())));
+        for (Map.Entry<String, AbyssMetrics.WorldCollection> entry : metrics.getWorldCollections().entrySet()) {
+            AbyssMetrics.WorldCollection world = entry.getValue();
+            sender.sendMessage(messages.getMessage("stats.collection-world",
+                    "world", entry.getKey(),
+                    "scanned", String.valueOf(world.getScanned()),
+                    "collected", String.valueOf(world.getCollected()),
+                    "time", millis(world.getNanos())));
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Opis zapytania do wiadomości (materiał i wpisany tekst)
+     */
+    private static String describe(SearchQuery query) {
+        StringBuilder description = new StringBuilder();
+        if (query.material() != null) {
+            description.append(query.material().name().toLowerCase(Locale.ROOT));
+        }
+        if (!query.words().isEmpty()) {
+            if (description.length() > 0) {
+                description.append(' ');
+            }
+            description.append('"').append(query.text()).append('"');
+        }
+        return description.toString();
+    }
+
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
-        return new ArrayList<>();
+        List<String> completions = new ArrayList<>();
+        if (args.length == 1) {
+            String prefix = args[0].toLowerCase(Locale.ROOT);
+            for (String subcommand : SUBCOMMANDS) {
+                if (subcommand.startsWith(prefix)) {
+                    completions.add(subcommand);
+                }
+            }
+            if (sender.hasPermission("devotchlan.stats")) {
+                for (String subcommand : STATS_SUBCOMMANDS) {
+                    if (subcommand.startsWith(prefix)) {
+                        completions.add(subcommand);
+                    }
+                }
+            }
+        } else if (args.length == 2 && (args[0].equalsIgnoreCase("filter") || args[0].equalsIgnoreCase("filtr"))) {
+            String prefix = args[1].toLowerCase(Locale.ROOT);
+            for (Material material : Material.values()) {
+                String name = material.name().toLowerCase(Locale.ROOT);
+                if (!material.isLegacy() && material.isItem() && name.startsWith(prefix)) {
+                    completions.add(name);
+                }
+            }
+        }
+        return completions;
     }
 }
@@ -11,6 +11,9 @@ import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryDragEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.util.List;
 
 /**
  * Obsługuje eventy związane z GUI Otchłani
@@ -29,6 +32,19 @@ public class InventoryListener implements Listener {
             return;
         }
 
+        // Czas obsługi kliknięcia trafia do histogramu (/abyss stats)
+        long start = System.nanoTime();
+        try {
+            handleClick(event);
+        } finally {
+            plugin.getMetrics().recordClick(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Obsługuje kliknięcie w GUI Otchłani lub w ekwipunek gracza pod nim
+     */
+    private void handleClick(InventoryClickEvent event) {
         Player player = (Player) event.getWhoClicked();
         AbyssGUI gui = plugin.getAbyssGUI();
         int slot = event.getRawSlot();
@@ -44,15 +60,12 @@ public class InventoryListener implements Listener {
                     // Sklonuj item aby zachować wszystkie NBT i metadata (custom itemy)
                     ItemStack clonedItem = clicked.clone();
 
-                    // Dodaj item do magazynu
-                    plugin.getAbyssManager().addItem(clonedItem);
+                    // Zgłoś item do magazynu (GUI odświeży zapis paczki z kolejki)
+                    plugin.getAbyssManager().submit(clonedItem);
 
                     // Usuń item z ekwipunku gracza
                     event.setCurrentItem(null);
 
-                    // Odśwież GUI dla wszystkich
-                    gui.refreshAllViewers();
-
                     // Wyślij wiadomość
                     player.sendMessage(plugin.getMessageManager().getMessage("gui.item-added"));
                 }
@@ -61,12 +74,10 @@ public class InventoryListener implements Listener {
         }
 
         // Kliknięto w GUI
-        int currentPage = gui.getCurrentPage(player);
-
         // Sprawdź, czy to przycisk nawigacji
         if (gui.isNavigationButton(slot)) {
             event.setCancelled(true);
-            gui.handleNavigationClick(player, slot);
+            gui.handleNavigationClick(player, slot, event.isRightClick());
             return;
         }
 
@@ -82,8 +93,8 @@ public class InventoryListener implements Listener {
         ItemStack clickedItem = event.getCurrentItem();
         ItemStack cursorItem = event.getCursor();
 
-        // Oblicz globalny indeks
-        int globalIndex = plugin.getAbyssManager().getGlobalIndex(currentPage, slot, gui.getItemsPerPage());
+        // Wpis, który gracz widzi w tym slocie (stały identyfikator, niezależny od przesunięć)
+        long entryId = gui.getEntryId(player, slot);
 
         // Sprawdź typ kliknięcia
         switch (event.getClick()) {
@@ -92,27 +103,29 @@ public class InventoryListener implements Listener {
                 // Zabieranie itemów z magazynu
                 if (clickedItem != null && !clickedItem.getType().isAir()) {
                     // Atomowo pobierz i usuń item z magazynu (zapobiega race conditions)
-                    ItemStack itemFromStorage = plugin.getAbyssManager().takeItem(globalIndex);
+                    // Po identyfikatorze - dokładnie ten wpis, który gracz widzi w slocie
+                    ItemStack itemFromStorage = plugin.getAbyssManager().takeItemById(entryId);
 
                     if (itemFromStorage != null) {
-                        // Item już sklonowany w takeItem(), możemy go bezpiecznie użyć
+                        // Item już sklonowany w takeItemById(), możemy go bezpiecznie użyć
                         // Spróbuj dodać item do ekwipunku gracza
                         var remaining = player.getInventory().addItem(itemFromStorage);
 
                         // Sprawdź czy udało się dodać wszystkie itemy
                         if (remaining.isEmpty()) {
-                            // Wszystko OK, item już usunięty z magazynu przez takeItem()
+                            // Wszystko OK, item już usunięty z magazynu przez takeItemById()
                             // Odśwież GUI dla wszystkich
-                            gui.refreshAllViewers();
+                            plugin.getRefreshScheduler().requestRefresh();
 
                             // Wyślij wiadomość
                             player.sendMessage(plugin.getMessageManager().getMessage("gui.item-taken"));
                         } else {
-                            // Ekwipunek pełny - musimy zwrócić item do magazynu
-                            plugin.getAbyssManager().addItem(itemFromStorage);
+                            // Ekwipunek pełny - do magazynu wraca tylko to, co się nie zmieściło
+                            // (część stacka mogła już trafić do ekwipunku)
+                            plugin.getAbyssManager().submitAll(remaining.values());
 
-                            // Odśwież GUI aby pokazać przywrócony item
-                            gui.refreshAllViewers();
+                            // Odśwież GUI - wpis zniknął, a zwrócona reszta pojawi się po zapisie kolejki
+                            plugin.getRefreshScheduler().requestRefresh();
 
                             player.sendMessage(plugin.getMessageManager().getMessage("errors.inventory-full"));
                         }
@@ -123,46 +136,51 @@ public class InventoryListener implements Listener {
                     // Sklonuj item aby zachować wszystkie NBT i metadata (custom itemy)
                     ItemStack clonedCursorItem = cursorItem.clone();
 
-                    // Dodaj item do magazynu
-                    plugin.getAbyssManager().addItem(clonedCursorItem);
+                    // Zgłoś item do magazynu (GUI odświeży zapis paczki z kolejki)
+                    plugin.getAbyssManager().submit(clonedCursorItem);
 
                     // Usuń item z kursora
                     event.setCursor(null);
 
-                    // Odśwież GUI dla wszystkich
-                    gui.refreshAllViewers();
-
                     // Wyślij wiadomość
                     player.sendMessage(plugin.getMessageManager().getMessage("gui.item-added"));
                 }
                 break;
 
-            case SHIFT_LEFT:
             case SHIFT_RIGHT:
+                // Shift + prawy klik - zabieranie wszystkich podobnych itemów, aż zabraknie miejsca
+                if (clickedItem != null && !clickedItem.getType().isAir()) {
+                    takeAllSimilar(player, entryId, clickedItem);
+                }
+                break;
+
+            case SHIFT_LEFT:
                 // Shift-click - zabieranie itemów
                 if (clickedItem != null && !clickedItem.getType().isAir()) {
                     // Atomowo pobierz i usuń item z magazynu (zapobiega race conditions)
-                    ItemStack itemFromStorage = plugin.getAbyssManager().takeItem(globalIndex);
+                    // Po identyfikatorze - dokładnie ten wpis, który gracz widzi w slocie
+                    ItemStack itemFromStorage = plugin.getAbyssManager().takeItemById(entryId);
 
                     if (itemFromStorage != null) {
-                        // Item już sklonowany w takeItem(), możemy go bezpiecznie użyć
+                        // Item już sklonowany w takeItemById(), możemy go bezpiecznie użyć
                         // Spróbuj dodać item do ekwipunku gracza
                         var remaining = player.getInventory().addItem(itemFromStorage);
 
                         // Sprawdź czy udało się dodać wszystkie itemy
                         if (remaining.isEmpty()) {
-                            // Wszystko OK, item już usunięty z magazynu przez takeItem()
+                            // Wszystko OK, item już usunięty z magazynu przez takeItemById()
                             // Odśwież GUI dla wszystkich
-                            gui.refreshAllViewers();
+                            plugin.getRefreshScheduler().requestRefresh();
 
                             // Wyślij wiadomość
                             player.sendMessage(plugin.getMessageManager().getMessage("gui.item-taken"));
                         } else {
-                            // Ekwipunek pełny - musimy zwrócić item do magazynu
-                            plugin.getAbyssManager().addItem(itemFromStorage);
+                            // Ekwipunek pełny - do magazynu wraca tylko to, co się nie zmieściło
+                            // (część stacka mogła już trafić do ekwipunku)
+                            plugin.getAbyssManager().submitAll(remaining.values());
 
-                            // Odśwież GUI aby pokazać przywrócony item
-                            gui.refreshAllViewers();
+                            // Odśwież GUI - wpis zniknął, a zwrócona reszta pojawi się po zapisie kolejki
+                            plugin.getRefreshScheduler().requestRefresh();
 
                             player.sendMessage(plugin.getMessageManager().getMessage("errors.inventory-full"));
                         }
@@ -182,7 +200,7 @@ public class InventoryListener implements Listener {
             case MIDDLE:
                 // Creative mode - sklonuj item
                 if (player.getGameMode() == org.bukkit.GameMode.CREATIVE && clickedItem != null && !clickedItem.getType().isAir()) {
-                    ItemStack itemFromStorage = plugin.getAbyssManager().getItem(globalIndex);
+                    ItemStack itemFromStorage = plugin.getAbyssManager().getItemById(entryId);
                     if (itemFromStorage != null) {
                         // Daj graczowi sklonowany item
                         event.setCursor(itemFromStorage.clone());
@@ -196,6 +214,57 @@ public class InventoryListener implements Listener {
         }
     }
 
+    /**
+     * Zabiera z magazynu wszystkie stacki podobne do klikniętego, ile zmieści ekwipunek gracza
+     * Jedna paczka w magazynie, jedna zmiana ekwipunku i jedno odświeżenie GUI
+     */
+    private void takeAllSimilar(Player player, long entryId, ItemStack clickedItem) {
+        PlayerInventory inventory = player.getInventory();
+        int room = roomFor(inventory, clickedItem);
+        if (room <= 0) {
+            player.sendMessage(plugin.getMessageManager().getMessage("errors.inventory-full"));
+            return;
+        }
+
+        List<ItemStack> taken = plugin.getAbyssManager().takeSimilar(entryId, room);
+        if (taken.isEmpty()) {
+            return;
+        }
+
+        int amount = 0;
+        for (ItemStack item : taken) {
+            amount += item.getAmount();
+        }
+
+        // Miejsce było policzone wcześniej, ale gdyby coś się nie zmieściło - wraca do magazynu
+        var remaining = inventory.addItem(taken.toArray(new ItemStack[0]));
+        if (!remaining.isEmpty()) {
+            plugin.getAbyssManager().submitAll(remaining.values());
+            for (ItemStack item : remaining.values()) {
+                amount -= item.getAmount();
+            }
+        }
+
+        plugin.getRefreshScheduler().requestRefresh();
+        player.sendMessage(plugin.getMessageManager().getMessage("gui.items-taken", "amount", String.valueOf(amount)));
+    }
+
+    /**
+     * Liczy, ile sztuk przedmiotu zmieści ekwipunek (puste sloty i niepełne podobne stacki)
+     */
+    private static int roomFor(PlayerInventory inventory, ItemStack item) {
+        int maxStack = item.getMaxStackSize();
+        int room = 0;
+        for (ItemStack slot : inventory.getStorageContents()) {
+            if (slot == null || slot.getType().isAir()) {
+                room += maxStack;
+            } else if (slot.isSimilar(item)) {
+                room += Math.max(0, maxStack - slot.getAmount());
+            }
+        }
+        return room;
+    }
+
     @EventHandler
     public void onInventoryDrag(InventoryDragEvent event) {
         // Sprawdź, czy to nasze GUI
@@ -224,7 +293,7 @@ public class InventoryListener implements Listener {
 
         // Usuń gracza z mapy
         // GUI już to robi, ale dla pewności
-        if (plugin.getConfig().getBoolean("debug", false)) {
+        if (plugin.getSettings().debug()) {
             plugin.getLogger().info("Gracz " + player.getName() + " zamknął GUI");
         }
     }
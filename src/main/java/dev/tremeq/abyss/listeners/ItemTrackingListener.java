@@ -0,0 +1,74 @@
+package dev.tremeq.abyss.listeners;
+
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
+import dev.tremeq.abyss.Abyss;
+import dev.tremeq.abyss.ItemTracker;
+import org.bukkit.entity.Item;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.entity.ItemDespawnEvent;
+import org.bukkit.event.entity.ItemMergeEvent;
+import org.bukkit.event.entity.ItemSpawnEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * Utrzymuje indeks leżących itemów ({@link ItemTracker}) na podstawie eventów
+ */
+public class ItemTrackingListener implements Listener {
+    private final Abyss plugin;
+
+    public ItemTrackingListener(Abyss plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemSpawn(ItemSpawnEvent event) {
+        plugin.getItemTracker().track(event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemMerge(ItemMergeEvent event) {
+        // Item źródłowy znika, zostaje tylko cel
+        plugin.getItemTracker().untrack(event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemPickup(EntityPickupItemEvent event) {
+        // Przy częściowym podniesieniu reszta zostaje na ziemi
+        if (event.getRemaining() <= 0) {
+            plugin.getItemTracker().untrack(event.getItem());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemDespawn(ItemDespawnEvent event) {
+        plugin.getItemTracker().untrack(event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityRemove(EntityRemoveFromWorldEvent event) {
+        // Pozostałe sposoby zniknięcia itemu (lejki, lawa, /kill itd.)
+        if (event.getEntity() instanceof Item item) {
+            plugin.getItemTracker().untrack(item);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        plugin.getItemTracker().trackAll(event.getEntities());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesUnload(EntitiesUnloadEvent event) {
+        plugin.getItemTracker().untrackAll(event.getEntities());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        plugin.getItemTracker().untrackWorld(event.getWorld());
+    }
+}
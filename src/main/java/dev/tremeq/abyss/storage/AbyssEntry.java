@@ -0,0 +1,389 @@
+package dev.tremeq.abyss.storage;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.nio.ByteBuffer;
+import java.util.logging.Logger;
+
+/**
+ * Pojedynczy wpis magazynu Otchłani - przedmiot ze stałym identyfikatorem
+ * Identyfikator jest kluczem wpisów w dzienniku (journal) na dysku
+ *
+ * Wpisy wczytane z dysku trzymają tylko zserializowane bajty (np. fragment zmapowanego
+ * snapshotu) i zamieniają się w ItemStack dopiero przy pierwszym użyciu.
+ * Nowe wpisy trzymają wspólny wzorzec przedmiotu i ilość ({@link ItemPrototype}), a nieużywane
+ * mogą wrócić do samych bajtów poza stertą ({@link ColdTier}).
+ *
+ * Postać wpisu zmienia się pod blokadą wpisu, zawsze w kolejności: najpierw nowa, potem
+ * wyczyszczenie starej - czytelnik bez blokady zawsze znajdzie jedną z nich.
+ */
+public final class AbyssEntry {
+    // Szacunkowy narzut obiektów wpisu i ItemStacka w pamięci
+    private static final int BASE_SIZE = 96;
+    // Szacunkowy rozmiar meta (nazwa, lore, enchanty, NBT) dla przedmiotów, których bajtów jeszcze nie znamy
+    private static final int META_SIZE = 512;
+
+    // Logger pluginu dla błędów odczytu - wpisy nie mają referencji do pluginu
+    private static volatile Logger logger = Logger.getLogger("Abyss");
+
+    private final long id;
+    // Chwila dodania do magazynu (ms od epoki) - zapisywana na dysku razem z przedmiotem
+    private final long createdAt;
+    private volatile ByteBuffer serialized;
+    private volatile ItemStack item;
+    // Wspólny wzorzec przedmiotu (null, gdy wpis trzyma własny ItemStack lub same bajty)
+    private volatile ItemPrototype prototype;
+    private volatile int amount;
+    // Materiał przedmiotu trzymanego tylko jako bajty (null = nieznany bez deserializacji)
+    // Gdy jest ustawiony, pole amount trzyma ilość, a knownTier poziom wartości także dla wpisów bez wzorca
+    private volatile Material knownType;
+    private int knownTier;
+    // Zwiększana przy każdej zmianie przedmiotu - GUI porównuje ją zamiast ItemStacków
+    private volatile int revision;
+    private int estimatedSize;
+    // Ustawiane przy wyświetleniu lub zmianie - druga szansa w polityce LRU
+    private volatile boolean referenced;
+    // Ustawiane pod blokadą magazynu, gdy wpis zostaje z niego usunięty (dla kolejek usuwania i wygasania)
+    private boolean removed;
+    // Zimna warstwa, której wpis zgłasza deserializację (null, gdy warstwa jest wyłączona)
+    private volatile ColdTier coldTier;
+    // Ostatnie wyświetlenie lub zmiana (ms od epoki)
+    private volatile long lastAccess;
+
+    /**
+     * Ustawia logger pluginu (przy włączaniu pluginu, przed wczytaniem magazynu)
+     */
+    public static void setLogger(Logger pluginLogger) {
+        logger = pluginLogger;
+    }
+
+    /**
+     * Tworzy wpis ze wspólnego wzorca (referencja wzorca musi być już pobrana z {@link PrototypeTable})
+     */
+    public AbyssEntry(long id, ItemPrototype prototype, int amount) {
+        this.id = id;
+        this.createdAt = System.currentTimeMillis();
+        this.prototype = prototype;
+        this.amount = amount;
+        this.estimatedSize = estimateSize(prototype.getTemplate());
+    }
+
+    /**
+     * Tworzy wpis leniwy - ItemStack powstanie dopiero w {@link #getItem()}
+     */
+    public AbyssEntry(long id, ByteBuffer serialized, long createdAt) {
+        this.id = id;
+        this.createdAt = createdAt;
+        this.serialized = serialized;
+        this.estimatedSize = serialized != null ? BASE_SIZE + serialized.remaining() : BASE_SIZE;
+    }
+
+    /**
+     * Pobiera identyfikator wpisu
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Pobiera chwilę dodania wpisu do magazynu (ms od epoki)
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Pobiera przedmiot przechowywany we wpisie
+     * Wpis ze wzorca buduje przy każdym wywołaniu nowy ItemStack, wpis z bajtów deserializuje
+     * go przy pierwszym użyciu
+     */
+    public ItemStack getItem() {
+        ItemPrototype currentPrototype = prototype;
+        if (currentPrototype != null) {
+            return currentPrototype.create(amount);
+        }
+
+        ItemStack current = item;
+        if (current == null) {
+            // Blokada tylko na zimnej ścieżce - żeby nie nadpisać przedmiotu podmienionego w międzyczasie
+            synchronized (this) {
+                currentPrototype = prototype;
+                if (currentPrototype != null) {
+                    return currentPrototype.create(amount);
+                }
+                current = item;
+                if (current == null) {
+                    current = deserialize();
+                    item = current;
+                    ColdTier tier = coldTier;
+                    if (tier != null) {
+                        tier.promoted(this);
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Pobiera materiał przedmiotu bez budowania ItemStacka (jeśli to możliwe)
+     */
+    public Material getType() {
+        ItemPrototype currentPrototype = prototype;
+        if (currentPrototype != null) {
+            return currentPrototype.getTemplate().getType();
+        }
+        ItemStack current = item;
+        if (current != null) {
+            return current.getType();
+        }
+        Material known = knownType;
+        return known != null ? known : getItem().getType();
+    }
+
+    /**
+     * Pobiera ilość przedmiotu
+     */
+    public int getAmount() {
+        if (prototype != null) {
+            return amount;
+        }
+        ItemStack current = item;
+        if (current != null) {
+            return current.getAmount();
+        }
+        return knownType != null ? amount : getItem().getAmount();
+    }
+
+    /**
+     * Pobiera wzorzec wpisu (null, gdy wpis go nie używa)
+     */
+    public ItemPrototype getPrototype() {
+        return prototype;
+    }
+
+    /**
+     * Podmienia przedmiot we wpisie na wzorzec z ilością (np. po zmianie przez administratora)
+     * Referencję poprzedniego wzorca i miejsce w zimnej warstwie ({@link ColdTier#replacing}) zwalnia wywołujący
+     */
+    public void setPrototype(ItemPrototype prototype, int amount) {
+        synchronized (this) {
+            this.amount = amount;
+            this.prototype = prototype;
+            this.item = null;
+            this.serialized = null;
+        }
+        this.estimatedSize = estimateSize(prototype.getTemplate());
+        this.revision++;
+        touch();
+    }
+
+    /**
+     * Zmienia ilość przedmiotu we wpisie ze wzorca (np. po dołączeniu podobnego stacka)
+     * ItemStacki zbudowane wcześniej się nie zmieniają
+     */
+    public void setAmount(int amount) {
+        this.amount = amount;
+        this.revision++;
+        touch();
+    }
+
+    /**
+     * Pobiera numer zmiany przedmiotu - różny numer oznacza, że przedmiot się zmienił
+     */
+    public int getRevision() {
+        return revision;
+    }
+
+    /**
+     * Pobiera szacunkowy rozmiar wpisu w bajtach (do limitu rozmiaru magazynu)
+     * Dla wpisów z dysku to rozmiar zserializowanych bajtów, dla nowych - przybliżenie
+     */
+    public int getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    /**
+     * Oznacza wpis jako niedawno używany (wyświetlony w GUI lub zmieniony)
+     */
+    public void touch() {
+        referenced = true;
+        lastAccess = System.currentTimeMillis();
+    }
+
+    /**
+     * Zdejmuje znacznik użycia
+     * @return true, jeśli wpis był oznaczony jako używany
+     */
+    boolean clearReferenced() {
+        if (referenced) {
+            referenced = false;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sprawdza, czy wpis został usunięty z magazynu
+     */
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    /**
+     * Oznacza wpis jako usunięty z magazynu (wywoływane pod blokadą magazynu)
+     */
+    public void markRemoved() {
+        this.removed = true;
+    }
+
+    /**
+     * Pobiera poziom wartości przedmiotu (0 = najtańsze, patrz {@link ItemPrototype#valueTierOf})
+     * Wpis ze wzorca czyta poziom wzorca, wpis z samych bajtów - zapamiętany przy odczycie
+     */
+    int getValueTier() {
+        ItemPrototype currentPrototype = prototype;
+        if (currentPrototype != null) {
+            return currentPrototype.getValueTier();
+        }
+        ItemStack current = item;
+        if (current == null && knownType != null) {
+            return knownTier;
+        }
+        return ItemPrototype.valueTierOf(current != null ? current : getItem());
+    }
+
+    /**
+     * Sprawdza, czy przedmiot jest dostępny bez deserializacji
+     */
+    public boolean isLoaded() {
+        return prototype != null || item != null;
+    }
+
+    /**
+     * Sprawdza, czy materiał, ilość i poziom wartości są znane bez deserializacji
+     */
+    public boolean isResolved() {
+        return isLoaded() || knownType != null;
+    }
+
+    /**
+     * Zapamiętuje materiał, ilość i poziom wartości przedmiotu odczytanego z bajtów wpisu (np. w tle)
+     * Wpis dalej trzyma same bajty - sortowanie i limity nie muszą go deserializować
+     */
+    public void resolve(ItemStack item) {
+        synchronized (this) {
+            // Przedmiot podmieniony w międzyczasie - odczytane bajty są nieaktualne
+            if (prototype == null && this.item == null) {
+                remember(item, item.getAmount());
+            }
+        }
+    }
+
+    /**
+     * Pobiera postać przedmiotu do zapisu w tle, bez serializacji (wywoływane pod blokadą magazynu)
+     * Bajty mają pierwszeństwo - wpis z dysku lub z zimnej warstwy nie musi być serializowany wcale
+     */
+    EntryState captureState() {
+        ByteBuffer source = serialized;
+        if (source != null) {
+            return new EntryState(id, createdAt, source.duplicate(), null, 0, null);
+        }
+        ItemPrototype currentPrototype = prototype;
+        if (currentPrototype != null) {
+            return new EntryState(id, createdAt, null, currentPrototype, amount, null);
+        }
+        return new EntryState(id, createdAt, null, null, 0, item);
+    }
+
+    /**
+     * Pobiera zserializowaną postać przedmiotu
+     * Wpisy z dysku i z zimnej warstwy zwracają kopię bajtów bez deserializacji
+     */
+    public byte[] toBytes() {
+        ByteBuffer source = serialized;
+        if (source == null) {
+            ItemPrototype currentPrototype = prototype;
+            if (currentPrototype != null) {
+                return currentPrototype.create(amount).serializeAsBytes();
+            }
+            ItemStack current = item;
+            if (current != null) {
+                return current.serializeAsBytes();
+            }
+            // Wpis właśnie przeniesiony do zimnej warstwy - bajty są już ustawione
+            source = serialized;
+        }
+        byte[] data = new byte[source.remaining()];
+        source.duplicate().get(data);
+        return data;
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    void setColdTier(ColdTier coldTier) {
+        this.coldTier = coldTier;
+    }
+
+    ByteBuffer getSerialized() {
+        return serialized;
+    }
+
+    /**
+     * Podmienia bajty wpisu na te same bajty w innym miejscu (np. we fragmencie bloku areny)
+     */
+    void setSerialized(ByteBuffer serialized) {
+        this.serialized = serialized;
+    }
+
+    /**
+     * Oddaje ItemStack i wzorzec - przedmiot zostaje tylko jako bajty (bajty muszą być już ustawione)
+     * Referencję wzorca zwalnia wywołujący
+     */
+    synchronized void unload() {
+        if (serialized != null) {
+            ItemPrototype currentPrototype = prototype;
+            ItemStack current = currentPrototype != null ? currentPrototype.getTemplate() : item;
+            if (current != null) {
+                remember(current, currentPrototype != null ? amount : current.getAmount());
+            }
+            item = null;
+            prototype = null;
+        }
+    }
+
+    /**
+     * Zamienia własny ItemStack na wspólny wzorzec (referencja wzorca musi być już pobrana)
+     */
+    synchronized void intern(ItemPrototype prototype, int amount) {
+        this.amount = amount;
+        this.prototype = prototype;
+        this.item = null;
+        this.serialized = null;
+    }
+
+    /**
+     * Zapisuje dane przedmiotu potrzebne do sortowania (ilość i poziom przed materiałem - materiał je publikuje)
+     */
+    private void remember(ItemStack current, int currentAmount) {
+        knownTier = ItemPrototype.valueTierOf(current);
+        amount = currentAmount;
+        knownType = current.getType();
+    }
+
+    private static int estimateSize(ItemStack item) {
+        return item != null && item.hasItemMeta() ? BASE_SIZE + META_SIZE : BASE_SIZE;
+    }
+
+    private ItemStack deserialize() {
+        try {
+            return ItemStack.deserializeBytes(toBytes());
+        } catch (Exception e) {
+            logger.warning("Nie można odczytać przedmiotu #" + id + ": " + e.getMessage());
+            return ItemStack.empty();
+        }
+    }
+}
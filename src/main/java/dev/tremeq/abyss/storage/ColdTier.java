@@ -0,0 +1,284 @@
+package dev.tremeq.abyss.storage;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Zimna warstwa magazynu - przedmioty, na które nikt nie patrzy, trzymane jako bajty poza stertą
+ *
+ * Wpisy zdeserializowane (gorące) trafiają do kolejki w kolejności sprawdzania. Wpis, którego
+ * nikt nie użył przez podany czas, oddaje swój ItemStack i zostaje tylko z bajtami - zapisanymi
+ * w blokach pamięci direct (arena) albo we fragmencie zmapowanego snapshotu. Wyświetlenie
+ * wpisu ponownie go deserializuje i zgłasza jako gorący. Wpis z przedmiotem, który ma już
+ * wspólny wzorzec ({@link PrototypeTable}), zamiast bajtów dostaje referencję do wzorca.
+ *
+ * Bloki areny są przydzielane po kolei (bump allocation). Zwolnione bajty są tylko liczone;
+ * blok bez żywych bajtów jest porzucany, a prawie pusty blok jest przepisywany do bieżącego.
+ *
+ * Klasa nie jest thread-safe (poza {@link #promoted}) - wywoływana pod blokadą magazynu.
+ */
+public final class ColdTier {
+    private static final int BLOCK_SIZE = 1 << 20;
+    // Blok z mniej niż 1/4 żywych bajtów jest przepisywany, żeby oddać pamięć
+    private static final int COMPACT_RATIO = 4;
+
+    private final PrototypeTable prototypes;
+    private long idleMillis;
+    // Wpisy zdeserializowane przez czytelników od ostatniego przebiegu (wiele wątków)
+    private final ConcurrentLinkedQueue<AbyssEntry> promotions = new ConcurrentLinkedQueue<>();
+    // Gorące wpisy w kolejności ostatniego sprawdzenia -> chwila sprawdzenia
+    private final LinkedHashMap<AbyssEntry, Long> hot = new LinkedHashMap<>();
+    // Blok areny, w którym leżą bajty wpisu (brak, gdy bajty są na stercie, w snapshocie lub ich nie ma)
+    private final Map<AbyssEntry, Block> entryBlocks = new HashMap<>();
+    private final List<Block> blocks = new ArrayList<>();
+    private Block current;
+    private long coldBytes;
+
+    public ColdTier(long idleMillis, PrototypeTable prototypes) {
+        this.idleMillis = idleMillis;
+        this.prototypes = prototypes;
+    }
+
+    public void setIdleMillis(long idleMillis) {
+        this.idleMillis = idleMillis;
+    }
+
+    /**
+     * Przyjmuje nowy wpis magazynu
+     * Bajty wpisu trzymane na stercie (np. z dziennika) są przenoszone do areny
+     */
+    public void track(AbyssEntry entry, long now) {
+        entry.setColdTier(this);
+        ByteBuffer serialized = entry.getSerialized();
+        if (serialized != null && !serialized.isDirect()) {
+            store(entry, serialized);
+        }
+        if (entry.isLoaded()) {
+            markHot(entry, now);
+        }
+    }
+
+    /**
+     * Zwalnia miejsce zajmowane przez usunięty wpis
+     */
+    public void release(AbyssEntry entry) {
+        entry.setColdTier(null);
+        hot.remove(entry);
+        freeBlock(entry);
+    }
+
+    /**
+     * Zwalnia bajty wpisu przed podmianą jego przedmiotu na nowy wzorzec (bajty muszą być jeszcze ustawione)
+     * Wpis z nowym przedmiotem jest gorący
+     */
+    public void replacing(AbyssEntry entry, long now) {
+        freeBlock(entry);
+        if (!hot.containsKey(entry)) {
+            markHot(entry, now);
+        }
+    }
+
+    /**
+     * Zgłasza wpis zdeserializowany przez czytelnika (thread-safe)
+     */
+    void promoted(AbyssEntry entry) {
+        promotions.offer(entry);
+    }
+
+    /**
+     * Przenosi do zimnej warstwy wpisy nieużywane od co najmniej idleMillis
+     * @param deadlineNanos granica czasu pracy (System.nanoTime()) - reszta zostaje na kolejny przebieg
+     * @return ilość przeniesionych wpisów
+     */
+    public int demote(long now, long deadlineNanos) {
+        AbyssEntry promotedEntry;
+        while ((promotedEntry = promotions.poll()) != null) {
+            if (!promotedEntry.isRemoved() && !hot.containsKey(promotedEntry)) {
+                markHot(promotedEntry, now);
+            }
+        }
+
+        int demoted = 0;
+        int checked = 0;
+        long idleSince = now - idleMillis;
+        // Kolejka jest uporządkowana po chwili sprawdzenia - za pierwszym świeżym wpisem są same świeże
+        while (!hot.isEmpty()) {
+            Iterator<Map.Entry<AbyssEntry, Long>> first = hot.entrySet().iterator();
+            Map.Entry<AbyssEntry, Long> oldest = first.next();
+            if (oldest.getValue() > idleSince) {
+                break;
+            }
+            // Co tyle wpisów sprawdzamy zegar - System.nanoTime() też kosztuje
+            if ((checked++ & 31) == 0 && System.nanoTime() > deadlineNanos) {
+                break;
+            }
+            AbyssEntry entry = oldest.getKey();
+            first.remove();
+
+            if (entry.getLastAccess() > idleSince) {
+                // Użyty od ostatniego sprawdzenia - kolejna szansa
+                hot.put(entry, now);
+            } else if (demote(entry)) {
+                demoted++;
+            }
+        }
+
+        compactBlocks();
+        return demoted;
+    }
+
+    /**
+     * Pobiera ilość bajtów przedmiotów trzymanych w arenie poza stertą
+     */
+    public long getColdBytes() {
+        return coldBytes;
+    }
+
+    /**
+     * Pobiera ilość wpisów trzymanych jako ItemStack
+     */
+    public int getHotCount() {
+        return hot.size();
+    }
+
+    private void markHot(AbyssEntry entry, long now) {
+        hot.put(entry, now);
+    }
+
+    /**
+     * Zdejmuje wpis ze sterty
+     * Wpis ze współdzielonym wzorcem zostaje przy nim - meta i tak jest w pamięci raz
+     * @return true, jeśli wpis oddał swój ItemStack lub wzorzec
+     */
+    private boolean demote(AbyssEntry entry) {
+        ItemPrototype prototype = entry.getPrototype();
+        if (prototype != null) {
+            if (prototype.isShared()) {
+                return false;
+            }
+            store(entry, ByteBuffer.wrap(prototype.create(entry.getAmount()).serializeAsBytes()));
+            entry.unload();
+            prototypes.release(prototype);
+            return true;
+        }
+
+        // Taki sam przedmiot jest już w pamięci - wystarczy referencja do jego wzorca
+        ItemStack item = entry.getItem();
+        ItemPrototype existing = prototypes.acquireExisting(ItemKey.of(item));
+        if (existing != null) {
+            freeBlock(entry);
+            entry.intern(existing, item.getAmount());
+            return true;
+        }
+
+        if (entry.getSerialized() == null) {
+            store(entry, ByteBuffer.wrap(item.serializeAsBytes()));
+        }
+        entry.unload();
+        return true;
+    }
+
+    /**
+     * Kopiuje bajty wpisu do areny i podpina wpis pod nowy fragment
+     */
+    private void store(AbyssEntry entry, ByteBuffer source) {
+        int length = source.remaining();
+        Block block = current;
+        if (block == null || block.memory.capacity() - block.position < length) {
+            // Duże przedmioty dostają własny blok, żeby nie marnować reszty bieżącego
+            block = new Block(Math.max(BLOCK_SIZE, length));
+            blocks.add(block);
+            if (length <= BLOCK_SIZE) {
+                current = block;
+            }
+        }
+
+        ByteBuffer target = block.memory.duplicate();
+        target.position(block.position);
+        target.put(source.duplicate());
+        ByteBuffer slice = block.memory.slice(block.position, length);
+        block.position += length;
+        block.liveBytes += length;
+        block.entries.add(entry);
+        coldBytes += length;
+
+        freeBlock(entry);
+        entry.setSerialized(slice);
+        entryBlocks.put(entry, block);
+    }
+
+    /**
+     * Zwalnia fragment bloku areny zajmowany przez wpis
+     */
+    private void freeBlock(AbyssEntry entry) {
+        Block block = entryBlocks.remove(entry);
+        if (block != null) {
+            block.free(entry.getSerialized().remaining());
+        }
+    }
+
+    /**
+     * Porzuca puste bloki i przepisuje prawie puste do bieżącego
+     * Czytelnicy trzymający stare fragmenty dalej widzą poprawne bajty - blok zniknie razem z nimi
+     */
+    private void compactBlocks() {
+        Iterator<Block> iterator = blocks.iterator();
+        List<Block> sparse = null;
+        while (iterator.hasNext()) {
+            Block block = iterator.next();
+            if (block == current) {
+                continue;
+            }
+            if (block.liveBytes == 0) {
+                iterator.remove();
+            } else if (block.liveBytes * COMPACT_RATIO < block.position) {
+                if (sparse == null) {
+                    sparse = new ArrayList<>();
+                }
+                sparse.add(block);
+                iterator.remove();
+            }
+        }
+
+        if (sparse == null) {
+            return;
+        }
+        for (Block block : sparse) {
+            for (AbyssEntry entry : block.entries) {
+                if (entryBlocks.get(entry) == block) {
+                    store(entry, entry.getSerialized());
+                }
+            }
+        }
+    }
+
+    /**
+     * Blok pamięci poza stertą
+     */
+    private final class Block {
+        private final ByteBuffer memory;
+        private final List<AbyssEntry> entries = new ArrayList<>();
+        private int position;
+        private int liveBytes;
+
+        private Block(int size) {
+            this.memory = ByteBuffer.allocateDirect(size);
+        }
+
+        /**
+         * Zwalnia bajty wpisu (wpis przestał używać bloku)
+         */
+        private void free(int length) {
+            liveBytes -= length;
+            coldBytes -= length;
+        }
+    }
+}
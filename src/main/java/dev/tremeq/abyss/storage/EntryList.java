@@ -0,0 +1,524 @@
+package dev.tremeq.abyss.storage;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Lista wpisów magazynu posortowana po identyfikatorach, podzielona na kawałki (chunki)
+ *
+ * Nowe wpisy zawsze dostają większy identyfikator niż poprzednie, więc dodawanie
+ * to dopisanie na koniec, a lista pozostaje posortowana. Dzięki temu:
+ * - wyszukanie po identyfikatorze to wyszukiwanie binarne po chunkach i w chunku - O(log n)
+ * - dostęp po pozycji korzysta z drzewa Fenwicka nad rozmiarami chunków - O(log n)
+ * - usunięcie przesuwa tylko elementy jednego chunka (najwyżej {@link #CHUNK_SIZE}), a nie całej listy
+ *
+ * Klasa nie jest thread-safe - zapisy wymagają synchronizacji po stronie wywołującego.
+ * {@link #snapshot()} zwraca jednak niezmienną kopię, którą można czytać z dowolnego wątku
+ * bez blokady. Kopia współdzieli chunki z listą; lista kopiuje chunk dopiero wtedy,
+ * gdy chce zmienić chunk widoczny w którejś kopii (copy-on-write).
+ */
+public final class EntryList {
+    static final int CHUNK_SIZE = 512;
+    // Sąsiednie chunki mniejsze niż to są łączone, żeby lista nie rozpadła się na drobne kawałki
+    private static final int MERGE_THRESHOLD = CHUNK_SIZE / 4;
+
+    private List<Chunk> chunks;
+    // Drzewo Fenwicka (indeksowane od 1) z rozmiarami chunków
+    private int[] tree;
+    private int size;
+
+    // Niezmienne kopie nie przyjmują zapisów
+    private final boolean frozen;
+    // Chunki z inną generacją są współdzielone z kopią i trzeba je skopiować przed zmianą
+    private int generation;
+    private EntryList lastSnapshot;
+
+    public EntryList() {
+        this(new ArrayList<>(), new int[1], 0, false);
+    }
+
+    private EntryList(List<Chunk> chunks, int[] tree, int size, boolean frozen) {
+        this.chunks = chunks;
+        this.tree = tree;
+        this.size = size;
+        this.frozen = frozen;
+    }
+
+    /**
+     * Pobiera niezmienną kopię listy do czytania bez blokady
+     * Koszt to skopiowanie referencji do chunków - O(n / CHUNK_SIZE); bez zmian od poprzedniej kopii - O(1)
+     */
+    public EntryList snapshot() {
+        if (frozen) {
+            return this;
+        }
+        if (lastSnapshot == null) {
+            lastSnapshot = new EntryList(List.copyOf(chunks), tree.clone(), size, true);
+            // Od teraz wszystkie obecne chunki należą też do kopii
+            generation++;
+        }
+        return lastSnapshot;
+    }
+
+    /**
+     * Sprawdza, czy to niezmienna kopia
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Dodaje wpis na koniec listy
+     * @throws IllegalArgumentException jeśli identyfikator nie jest większy od ostatniego
+     */
+    public void add(AbyssEntry entry) {
+        beginWrite();
+        Chunk last = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (last != null && entry.getId() <= last.lastId()) {
+            throw new IllegalArgumentException("Identyfikator " + entry.getId()
+                    + " nie jest większy od ostatniego (" + last.lastId() + ")");
+        }
+
+        if (last == null || last.size == CHUNK_SIZE) {
+            last = new Chunk(generation);
+            chunks.add(last);
+            rebuildTree();
+        } else {
+            last = editableChunk(chunks.size() - 1);
+        }
+
+        last.entries[last.size++] = entry;
+        size++;
+        update(chunks.size() - 1, 1);
+    }
+
+    /**
+     * Wstawia wpis w miejsce wynikające z identyfikatora (np. wpis z dysku przypisany później do partycji)
+     * Przesuwa elementy jednego chunka; pełny chunk jest dzielony na pół
+     * @throws IllegalArgumentException jeśli wpis o tym identyfikatorze już jest na liście
+     */
+    public void insert(AbyssEntry entry) {
+        long id = entry.getId();
+        if (chunks.isEmpty() || id > chunks.get(chunks.size() - 1).lastId()) {
+            add(entry);
+            return;
+        }
+
+        beginWrite();
+        // Pierwszy chunk, którego ostatni identyfikator nie jest mniejszy od wstawianego
+        int low = 0;
+        int high = chunks.size() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (chunks.get(mid).lastId() < id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int chunkIndex = low;
+        Chunk chunk = editableChunk(chunkIndex);
+        int offset = chunk.insertionPoint(id);
+        if (offset < 0) {
+            throw new IllegalArgumentException("Wpis o identyfikatorze " + id + " już jest na liście");
+        }
+
+        if (chunk.size == CHUNK_SIZE) {
+            Chunk right = chunk.split(generation);
+            chunks.add(chunkIndex + 1, right);
+            if (offset > chunk.size) {
+                offset -= chunk.size;
+                chunk = right;
+            }
+            chunk.insert(offset, entry);
+            size++;
+            rebuildTree();
+            return;
+        }
+
+        chunk.insert(offset, entry);
+        size++;
+        update(chunkIndex, 1);
+    }
+
+    /**
+     * Pobiera wpis z podanej pozycji
+     */
+    public AbyssEntry get(int index) {
+        checkIndex(index);
+        int chunkIndex = findChunkByPosition(index);
+        return chunks.get(chunkIndex).entries[index - prefix(chunkIndex)];
+    }
+
+    /**
+     * Pobiera wpis o podanym identyfikatorze
+     * @return wpis lub null, jeśli go nie ma
+     */
+    public AbyssEntry getById(long id) {
+        int chunkIndex = findChunkById(id);
+        if (chunkIndex < 0) {
+            return null;
+        }
+        Chunk chunk = chunks.get(chunkIndex);
+        int offset = chunk.indexOf(id);
+        return offset >= 0 ? chunk.entries[offset] : null;
+    }
+
+    /**
+     * Pobiera pozycję wpisu o podanym identyfikatorze
+     * @return pozycja lub -1, jeśli wpisu nie ma
+     */
+    public int indexOf(long id) {
+        int chunkIndex = findChunkById(id);
+        if (chunkIndex < 0) {
+            return -1;
+        }
+        int offset = chunks.get(chunkIndex).indexOf(id);
+        return offset >= 0 ? prefix(chunkIndex) + offset : -1;
+    }
+
+    /**
+     * Usuwa wpis z podanej pozycji
+     */
+    public AbyssEntry remove(int index) {
+        beginWrite();
+        checkIndex(index);
+        int chunkIndex = findChunkByPosition(index);
+        return removeAt(chunkIndex, index - prefix(chunkIndex));
+    }
+
+    /**
+     * Usuwa wpis o podanym identyfikatorze
+     * @return usunięty wpis lub null, jeśli go nie było
+     */
+    public AbyssEntry removeById(long id) {
+        beginWrite();
+        int chunkIndex = findChunkById(id);
+        if (chunkIndex < 0) {
+            return null;
+        }
+        int offset = chunks.get(chunkIndex).indexOf(id);
+        return offset >= 0 ? removeAt(chunkIndex, offset) : null;
+    }
+
+    /**
+     * Pobiera wpisy z zakresu pozycji [from, to)
+     */
+    public List<AbyssEntry> range(int from, int to) {
+        from = Math.max(0, from);
+        to = Math.min(to, size);
+        if (from >= to) {
+            return new ArrayList<>();
+        }
+
+        List<AbyssEntry> result = new ArrayList<>(to - from);
+        int chunkIndex = findChunkByPosition(from);
+        int offset = from - prefix(chunkIndex);
+        while (result.size() < to - from) {
+            Chunk chunk = chunks.get(chunkIndex);
+            int count = Math.min(chunk.size - offset, to - from - result.size());
+            result.addAll(Arrays.asList(chunk.entries).subList(offset, offset + count));
+            chunkIndex++;
+            offset = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Pobiera widok niezmiennej kopii jako List (bez kopiowania wpisów)
+     * @throws IllegalStateException jeśli lista nie jest niezmienną kopią
+     */
+    public List<AbyssEntry> asList() {
+        if (!frozen) {
+            throw new IllegalStateException("Widok listy jest dostępny tylko dla niezmiennej kopii");
+        }
+        return new SnapshotView();
+    }
+
+    /**
+     * Kopiuje wszystkie wpisy do nowej listy (w kolejności identyfikatorów)
+     */
+    public List<AbyssEntry> toList() {
+        List<AbyssEntry> result = new ArrayList<>(size);
+        for (Chunk chunk : chunks) {
+            result.addAll(Arrays.asList(chunk.entries).subList(0, chunk.size));
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        beginWrite();
+        chunks = new ArrayList<>();
+        tree = new int[1];
+        size = 0;
+    }
+
+    private AbyssEntry removeAt(int chunkIndex, int offset) {
+        Chunk chunk = editableChunk(chunkIndex);
+        AbyssEntry removed = chunk.entries[offset];
+        System.arraycopy(chunk.entries, offset + 1, chunk.entries, offset, chunk.size - offset - 1);
+        chunk.entries[--chunk.size] = null;
+        size--;
+
+        if (chunk.size == 0) {
+            chunks.remove(chunkIndex);
+            rebuildTree();
+        } else if (chunk.size >= MERGE_THRESHOLD || !tryMerge(chunkIndex)) {
+            update(chunkIndex, -1);
+        }
+        return removed;
+    }
+
+    /**
+     * Łączy mały chunk z sąsiadem, jeśli razem mieszczą się w jednym
+     * @return true, jeśli chunki zostały połączone (drzewo jest już przebudowane)
+     */
+    private boolean tryMerge(int chunkIndex) {
+        Chunk chunk = chunks.get(chunkIndex);
+        if (chunkIndex + 1 < chunks.size() && chunk.size + chunks.get(chunkIndex + 1).size <= CHUNK_SIZE) {
+            chunk.append(chunks.remove(chunkIndex + 1));
+            rebuildTree();
+            return true;
+        }
+        if (chunkIndex > 0 && chunk.size + chunks.get(chunkIndex - 1).size <= CHUNK_SIZE) {
+            editableChunk(chunkIndex - 1).append(chunks.remove(chunkIndex));
+            rebuildTree();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Szuka chunka, w którym może leżeć identyfikator (binarnie po ostatnich identyfikatorach chunków)
+     */
+    private int findChunkById(long id) {
+        int low = 0;
+        int high = chunks.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Chunk chunk = chunks.get(mid);
+            if (id > chunk.lastId()) {
+                low = mid + 1;
+            } else if (id < chunk.entries[0].getId()) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Szuka chunka zawierającego pozycję - zejście po drzewie Fenwicka
+     */
+    private int findChunkByPosition(int index) {
+        int position = 0;
+        int remaining = index;
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next < tree.length && tree[next] <= remaining) {
+                position = next;
+                remaining -= tree[next];
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Suma rozmiarów chunków przed podanym chunkiem
+     */
+    private int prefix(int chunkIndex) {
+        int sum = 0;
+        for (int i = chunkIndex; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private void update(int chunkIndex, int delta) {
+        for (int i = chunkIndex + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Przebudowuje drzewo po zmianie liczby chunków - O(liczba chunków)
+     */
+    private void rebuildTree() {
+        int[] rebuilt = new int[chunks.size() + 1];
+        for (int i = 1; i < rebuilt.length; i++) {
+            rebuilt[i] += chunks.get(i - 1).size;
+            int parent = i + (i & -i);
+            if (parent < rebuilt.length) {
+                rebuilt[parent] += rebuilt[i];
+            }
+        }
+        tree = rebuilt;
+    }
+
+    /**
+     * Przygotowuje listę do zapisu - kolejna kopia będzie musiała powstać od nowa
+     */
+    private void beginWrite() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Niezmienna kopia listy nie przyjmuje zapisów");
+        }
+        lastSnapshot = null;
+    }
+
+    /**
+     * Pobiera chunk do zmiany - kopiuje go, jeśli jest współdzielony z niezmienną kopią
+     */
+    private Chunk editableChunk(int chunkIndex) {
+        Chunk chunk = chunks.get(chunkIndex);
+        if (chunk.generation != generation) {
+            chunk = chunk.copy(generation);
+            chunks.set(chunkIndex, chunk);
+        }
+        return chunk;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Indeks " + index + " poza zakresem (rozmiar " + size + ")");
+        }
+    }
+
+    private static final class Chunk {
+        private final AbyssEntry[] entries = new AbyssEntry[CHUNK_SIZE];
+        private final int generation;
+        private int size;
+
+        Chunk(int generation) {
+            this.generation = generation;
+        }
+
+        Chunk copy(int newGeneration) {
+            Chunk copy = new Chunk(newGeneration);
+            System.arraycopy(entries, 0, copy.entries, 0, size);
+            copy.size = size;
+            return copy;
+        }
+
+        long lastId() {
+            return entries[size - 1].getId();
+        }
+
+        int indexOf(long id) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midId = entries[mid].getId();
+                if (midId < id) {
+                    low = mid + 1;
+                } else if (midId > id) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Pozycja, na której powinien stanąć identyfikator
+         * @return pozycja lub -1, jeśli identyfikator już jest w chunku
+         */
+        int insertionPoint(long id) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midId = entries[mid].getId();
+                if (midId < id) {
+                    low = mid + 1;
+                } else if (midId > id) {
+                    high = mid - 1;
+                } else {
+                    return -1;
+                }
+            }
+            return low;
+        }
+
+        void insert(int offset, AbyssEntry entry) {
+            System.arraycopy(entries, offset, entries, offset + 1, size - offset);
+            entries[offset] = entry;
+            size++;
+        }
+
+        /**
+         * Przenosi drugą połowę wpisów do nowego chunka
+         */
+        Chunk split(int newGeneration) {
+            Chunk right = new Chunk(newGeneration);
+            int half = size / 2;
+            System.arraycopy(entries, half, right.entries, 0, size - half);
+            Arrays.fill(entries, half, size, null);
+            right.size = size - half;
+            size = half;
+            return right;
+        }
+
+        void append(Chunk other) {
+            System.arraycopy(other.entries, 0, entries, size, other.size);
+            size += other.size;
+        }
+    }
+
+    /**
+     * Widok niezmiennej kopii - iteracja idzie chunk po chunku, bez wyszukiwania pozycji
+     */
+    private final class SnapshotView extends AbstractList<AbyssEntry> {
+        @Override
+        public AbyssEntry get(int index) {
+            return EntryList.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<AbyssEntry> iterator() {
+            return new Iterator<>() {
+                private int chunkIndex;
+                private int offset;
+
+                @Override
+                public boolean hasNext() {
+                    return chunkIndex < chunks.size();
+                }
+
+                @Override
+                public AbyssEntry next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Chunk chunk = chunks.get(chunkIndex);
+                    AbyssEntry entry = chunk.entries[offset++];
+                    if (offset == chunk.size) {
+                        chunkIndex++;
+                        offset = 0;
+                    }
+                    return entry;
+                }
+            };
+        }
+    }
+}
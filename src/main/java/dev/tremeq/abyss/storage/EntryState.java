@@ -0,0 +1,31 @@
+package dev.tremeq.abyss.storage;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Niezmienna postać wpisu do zapisu na dysku
+ *
+ * Pobierana pod blokadą magazynu bez serializacji - wątek zapisu serializuje ją sam. Wzorzec
+ * jest niezmienny, a bajty i własny ItemStack wpisu nie są zmieniane (wpis dostaje nowe),
+ * więc późniejsze zmiany wpisu nie zmieniają tego, co trafi na dysk.
+ * Ustawione jest dokładnie jedno z pól: bytes, prototype (z ilością) albo item.
+ */
+record EntryState(long id, long createdAt, ByteBuffer bytes, ItemPrototype prototype, int amount, ItemStack item) {
+
+    /**
+     * Serializuje przedmiot (wątek zapisu)
+     */
+    byte[] toBytes() {
+        if (bytes != null) {
+            byte[] data = new byte[bytes.remaining()];
+            bytes.duplicate().get(data);
+            return data;
+        }
+        if (prototype != null) {
+            return prototype.create(amount).serializeAsBytes();
+        }
+        return item.serializeAsBytes();
+    }
+}
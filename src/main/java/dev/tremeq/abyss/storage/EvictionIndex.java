@@ -0,0 +1,152 @@
+package dev.tremeq.abyss.storage;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Kolejka kandydatów do usunięcia przy przekroczeniu limitu magazynu
+ *
+ * Usunięte wpisy nie są wyjmowane z kolejek od razu (to byłoby O(n)) - są pomijane przy
+ * wybieraniu ofiary, a gdy nieaktualnych wpisów jest więcej niż żywych, kolejki są budowane
+ * od nowa. Wybór ofiary jest więc zamortyzowanym O(1):
+ * - FIFO: głowa kolejki w kolejności dodawania
+ * - LRU: CLOCK - wpis oznaczony jako używany dostaje drugą szansę i wraca na koniec
+ * - LOW_VALUE: osobna kolejka FIFO dla każdego poziomu wartości
+ *
+ * Klasa nie jest thread-safe - wywoływana pod blokadą magazynu.
+ */
+public final class EvictionIndex {
+    private static final int TIERS = 5;
+    // Ile wpisów z dysku (bez znanego poziomu wartości) klasyfikujemy przy jednym wyborze ofiary
+    private static final int RESOLVE_PER_VICTIM = 64;
+    private static final int MIN_REBUILD_STALE = 1024;
+
+    private final EvictionPolicy policy;
+    // FIFO/LRU: wszystkie wpisy; LOW_VALUE: wpisy, których poziom wartości nie jest jeszcze znany
+    private final ArrayDeque<AbyssEntry> queue = new ArrayDeque<>();
+    private final ArrayDeque<AbyssEntry>[] tiers;
+    private int live;
+    private int stale;
+
+    @SuppressWarnings("unchecked")
+    public EvictionIndex(EvictionPolicy policy) {
+        this.policy = policy;
+        this.tiers = new ArrayDeque[policy == EvictionPolicy.LOW_VALUE ? TIERS : 0];
+        for (int i = 0; i < tiers.length; i++) {
+            tiers[i] = new ArrayDeque<>();
+        }
+    }
+
+    public EvictionPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Dodaje nowy wpis magazynu
+     */
+    public void add(AbyssEntry entry) {
+        live++;
+        // Poziom wartości wpisów z dysku wymaga deserializacji - odkładamy ją do wyboru ofiary
+        if (policy == EvictionPolicy.LOW_VALUE && entry.isLoaded()) {
+            tiers[entry.getValueTier()].addLast(entry);
+        } else {
+            queue.addLast(entry);
+        }
+    }
+
+    /**
+     * Zapamiętuje usunięcie wpisu z magazynu (wpis musi być już oznaczony jako usunięty)
+     */
+    public void remove(AbyssEntry entry) {
+        live--;
+        stale++;
+    }
+
+    /**
+     * Sprawdza, czy kolejki zawierają już więcej nieaktualnych wpisów niż żywych
+     */
+    public boolean needsRebuild() {
+        return stale > Math.max(MIN_REBUILD_STALE, live);
+    }
+
+    /**
+     * Buduje kolejki od nowa z aktualnej zawartości magazynu
+     */
+    public void rebuild(List<AbyssEntry> entries) {
+        clear();
+        for (AbyssEntry entry : entries) {
+            add(entry);
+        }
+    }
+
+    public void clear() {
+        queue.clear();
+        for (ArrayDeque<AbyssEntry> tier : tiers) {
+            tier.clear();
+        }
+        live = 0;
+        stale = 0;
+    }
+
+    /**
+     * Wybiera wpis do usunięcia i zdejmuje go z kolejki
+     * @return wpis lub null, jeśli magazyn jest pusty
+     */
+    public AbyssEntry nextVictim() {
+        AbyssEntry victim = switch (policy) {
+            case FIFO -> pollLive(queue);
+            case LRU -> pollClock();
+            case LOW_VALUE -> pollLowestValue();
+        };
+
+        if (victim != null) {
+            // Wpis zszedł już z kolejki - remove() policzy go jako nieaktualny, więc wyrównujemy z góry
+            stale--;
+        }
+        return victim;
+    }
+
+    private AbyssEntry pollLive(ArrayDeque<AbyssEntry> deque) {
+        AbyssEntry entry;
+        while ((entry = deque.pollFirst()) != null) {
+            if (!entry.isRemoved()) {
+                return entry;
+            }
+            stale--;
+        }
+        return null;
+    }
+
+    /**
+     * CLOCK - każde oznaczenie wpisu jako używanego kosztuje najwyżej jedno przesunięcie w kolejce
+     */
+    private AbyssEntry pollClock() {
+        AbyssEntry entry;
+        while ((entry = pollLive(queue)) != null) {
+            if (!entry.clearReferenced()) {
+                return entry;
+            }
+            queue.addLast(entry);
+        }
+        return null;
+    }
+
+    private AbyssEntry pollLowestValue() {
+        // Sklasyfikuj porcję wpisów z dysku
+        for (int i = 0; i < RESOLVE_PER_VICTIM; i++) {
+            AbyssEntry entry = pollLive(queue);
+            if (entry == null) {
+                break;
+            }
+            tiers[entry.getValueTier()].addLast(entry);
+        }
+
+        for (ArrayDeque<AbyssEntry> tier : tiers) {
+            AbyssEntry entry = pollLive(tier);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+}
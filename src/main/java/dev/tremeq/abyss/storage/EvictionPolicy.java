@@ -0,0 +1,13 @@
+package dev.tremeq.abyss.storage;
+
+/**
+ * Kolejność usuwania przedmiotów, gdy magazyn przekroczy limit
+ */
+public enum EvictionPolicy {
+    /** Najstarsze wpisy pierwsze */
+    FIFO,
+    /** Najtańsze przedmioty pierwsze (rzadkość i meta), wśród równych - najstarsze */
+    LOW_VALUE,
+    /** Najdawniej oglądane lub zmieniane pierwsze (przybliżenie algorytmem CLOCK) */
+    LRU
+}
@@ -0,0 +1,164 @@
+package dev.tremeq.abyss.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchiczne koło czasowe (timing wheel) dla wygasania wpisów magazynu
+ *
+ * Zamiast co jakiś czas przeglądać cały magazyn, każdy wpis trafia do kubełka odpowiadającego
+ * jego czasowi wygaśnięcia. Poziom 0 ma 64 kubełki po jednym takcie, każdy kolejny poziom
+ * 64 kubełki 64 razy dłuższe (4 poziomy przy takcie 1 s to ok. 194 dni). Gdy wskazówka
+ * niższego poziomu zatoczy koło, kubełek wyższego poziomu jest rozdzielany niżej.
+ * Dodanie wpisu to O(1), a każdy takt dotyka tylko wpisów, których czas właśnie nadszedł.
+ *
+ * Terminy wpisów są trzymane w kole. Wpisy usunięte lub przeplanowane nie są wyjmowane z kubełków -
+ * są pomijane, gdy ich kubełek zostanie opróżniony, jeśli ich termin jeszcze nie nadszedł.
+ * Klasa nie jest thread-safe - wywoływana pod blokadą magazynu.
+ */
+public final class ExpiryWheel {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    @SuppressWarnings("unchecked")
+    private final List<AbyssEntry>[][] wheels = new List[LEVELS][SLOTS];
+    // Wpisy, których czas już minął w chwili dodania - obsłużone przy najbliższym takcie
+    private List<AbyssEntry> overdue = new ArrayList<>();
+    // Planowana chwila wygaśnięcia wpisów (ms od epoki); wpisy bez terminu nie wygasają
+    private final Map<AbyssEntry, Long> deadlines = new HashMap<>();
+    private long currentTick;
+
+    public ExpiryWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Planuje wygaśnięcie wpisu (poprzedni termin przestaje obowiązywać)
+     * @param expiresAt chwila wygaśnięcia (ms od epoki), 0 = wpis nie wygasa
+     */
+    public void schedule(AbyssEntry entry, long expiresAt) {
+        if (expiresAt <= 0) {
+            deadlines.remove(entry);
+            return;
+        }
+        deadlines.put(entry, expiresAt);
+        place(entry, expiresAt);
+    }
+
+    /**
+     * Pobiera planowaną chwilę wygaśnięcia wpisu (ms od epoki), 0 = nie wygasa
+     */
+    public long getExpiresAt(AbyssEntry entry) {
+        Long expiresAt = deadlines.get(entry);
+        return expiresAt != null ? expiresAt : 0;
+    }
+
+    /**
+     * Zapomina termin wpisu usuniętego z magazynu
+     */
+    public void remove(AbyssEntry entry) {
+        deadlines.remove(entry);
+    }
+
+    private void place(AbyssEntry entry, long expiresAt) {
+        long expiryTick = (expiresAt + tickMillis - 1) / tickMillis;
+        long delta = expiryTick - currentTick;
+        if (delta <= 0) {
+            overdue.add(entry);
+            return;
+        }
+
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (BITS * (level + 1))) {
+                add(level, (int) ((expiryTick >> (BITS * level)) & MASK), entry);
+                return;
+            }
+        }
+
+        // Dalej niż zasięg koła - odkładamy na najdalszy kubełek, przy rozdzielaniu trafi na właściwe miejsce
+        long farthest = currentTick + (1L << (BITS * LEVELS)) - 1;
+        add(LEVELS - 1, (int) ((farthest >> (BITS * (LEVELS - 1))) & MASK), entry);
+    }
+
+    /**
+     * Przesuwa koło do podanej chwili i przekazuje wpisy, których czas nadszedł
+     * Przekazany wpis traci termin - jeśli ma wygasnąć później, wywołujący planuje go ponownie
+     */
+    public void advance(long nowMillis, Consumer<AbyssEntry> due) {
+        long targetTick = nowMillis / tickMillis;
+
+        while (currentTick < targetTick) {
+            currentTick++;
+
+            // Wskazówka poziomu l przeskakuje co 64^l taktów - wtedy jej kubełek schodzi niżej
+            for (int level = 1; level < LEVELS; level++) {
+                if ((currentTick & ((1L << (BITS * level)) - 1)) != 0) {
+                    break;
+                }
+                List<AbyssEntry> bucket = take(level, (int) ((currentTick >> (BITS * level)) & MASK));
+                if (bucket != null) {
+                    for (AbyssEntry entry : bucket) {
+                        Long expiresAt = deadlines.get(entry);
+                        if (expiresAt != null) {
+                            place(entry, expiresAt);
+                        }
+                    }
+                }
+            }
+
+            List<AbyssEntry> bucket = take(0, (int) (currentTick & MASK));
+            if (bucket != null) {
+                emit(bucket, nowMillis, due);
+            }
+        }
+
+        if (!overdue.isEmpty()) {
+            List<AbyssEntry> expired = overdue;
+            overdue = new ArrayList<>();
+            emit(expired, nowMillis, due);
+        }
+    }
+
+    public void clear() {
+        for (List<AbyssEntry>[] level : wheels) {
+            Arrays.fill(level, null);
+        }
+        overdue = new ArrayList<>();
+        deadlines.clear();
+    }
+
+    private void emit(List<AbyssEntry> bucket, long nowMillis, Consumer<AbyssEntry> due) {
+        for (AbyssEntry entry : bucket) {
+            Long expiresAt = deadlines.get(entry);
+            // Wpis usunięty albo przeplanowany na później - czeka w innym kubełku
+            if (expiresAt == null || expiresAt > nowMillis) {
+                continue;
+            }
+            deadlines.remove(entry);
+            due.accept(entry);
+        }
+    }
+
+    private void add(int level, int slot, AbyssEntry entry) {
+        List<AbyssEntry> bucket = wheels[level][slot];
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            wheels[level][slot] = bucket;
+        }
+        bucket.add(entry);
+    }
+
+    private List<AbyssEntry> take(int level, int slot) {
+        List<AbyssEntry> bucket = wheels[level][slot];
+        wheels[level][slot] = null;
+        return bucket;
+    }
+}
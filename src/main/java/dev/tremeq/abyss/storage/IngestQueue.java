@@ -0,0 +1,115 @@
+package dev.tremeq.abyss.storage;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Kolejka przyjęć: wielu producentów, jeden konsument (MPSC), bez blokad
+ *
+ * Główna część to pierścień o stałym rozmiarze (potęga dwójki). Każdy slot ma numer sekwencji:
+ * producent rezerwuje pozycję jednym CAS na ogonie, wpisuje element i publikuje go zapisem
+ * sekwencji; konsument czyta slot dopiero, gdy sekwencja potwierdza zapis. Gdy pierścień jest
+ * pełny, element trafia do nieograniczonej kolejki przepełnienia - producent nigdy nie czeka
+ * i nic nie jest gubione (przedmioty zostały już zabrane z ziemi lub z ekwipunku).
+ *
+ * {@link #offer} jest bezpieczne z dowolnego wątku, {@link #drain} wywołuje tylko jeden wątek.
+ */
+public final class IngestQueue<E> {
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // Pozycja konsumenta - czytana i zmieniana tylko przez wątek opróżniający
+    private long head;
+    private final Queue<E> overflow = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger overflowSize = new AtomicInteger();
+
+    /**
+     * @param capacity rozmiar pierścienia (zaokrąglany w górę do potęgi dwójki)
+     */
+    public IngestQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Dodaje element bez czekania
+     * @return true, jeśli trafił do pierścienia; false, jeśli pierścień był pełny i element czeka w kolejce przepełnienia
+     */
+    public boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long diff = sequences.get(index) - position;
+
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, element);
+                    // Publikacja - konsument zobaczy element dopiero po tym zapisie
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                // Konsument nie zwolnił jeszcze slotu sprzed okrążenia - pierścień pełny
+                overflow.add(element);
+                overflowSize.incrementAndGet();
+                return false;
+            }
+            // diff > 0 - inny producent zajął pozycję, próbujemy z nowym ogonem
+        }
+    }
+
+    /**
+     * Przenosi gotowe elementy do listy (tylko wątek konsumenta)
+     * Pierścień jest opróżniany przed kolejką przepełnienia
+     * @param max najwięcej elementów w jednej paczce
+     * @return ilość przeniesionych elementów
+     */
+    public int drain(List<E> into, int max) {
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) head & mask;
+            // Slot zarezerwowany, ale jeszcze niezapisany - reszta poczeka na następne opróżnienie
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+
+            into.add(slots.get(index));
+            slots.lazySet(index, null);
+            // Zwolnienie slotu dla producenta z następnego okrążenia
+            sequences.set(index, head + mask + 1);
+            head++;
+            drained++;
+        }
+
+        E element;
+        while (drained < max && (element = overflow.poll()) != null) {
+            overflowSize.decrementAndGet();
+            into.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Przybliżona ilość czekających elementów (pierścień i przepełnienie)
+     */
+    public int size() {
+        long ring = tail.get() - head;
+        return (int) Math.max(0, Math.min(ring, capacity())) + overflowSize.get();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,45 @@
+package dev.tremeq.abyss.storage;
+
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Klucz podobieństwa przedmiotów - materiał i meta bez ilości
+ * Dwa klucze są równe, gdy przedmioty są {@link ItemStack#isSimilar(ItemStack)}
+ */
+public final class ItemKey {
+    private final ItemStack prototype;
+    private final int hash;
+
+    private ItemKey(ItemStack prototype) {
+        this.prototype = prototype;
+        // hashCode ItemStacka uwzględnia materiał, ilość i metę - ilość jest tu zawsze 1
+        this.hash = prototype.hashCode();
+    }
+
+    /**
+     * Tworzy klucz dla przedmiotu
+     */
+    public static ItemKey of(ItemStack item) {
+        return new ItemKey(item.asOne());
+    }
+
+    /**
+     * Pobiera wzorzec przedmiotu (ilość 1)
+     */
+    public ItemStack getPrototype() {
+        return prototype;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof ItemKey other && hash == other.hash && prototype.isSimilar(other.prototype);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
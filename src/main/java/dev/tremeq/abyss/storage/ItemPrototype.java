@@ -0,0 +1,95 @@
+package dev.tremeq.abyss.storage;
+
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Wspólny, niezmienny wzorzec przedmiotu (materiał i meta) dla wielu wpisów magazynu
+ * Wpis trzyma tylko referencję do wzorca i ilość - ItemStack powstaje dopiero przy pobraniu
+ *
+ * Licznik referencji zmieniany pod blokadą magazynu ({@link PrototypeTable}).
+ */
+public final class ItemPrototype {
+    private final ItemKey key;
+    private int references;
+    // Terminy wyszukiwania wspólne dla wszystkich wpisów z tym wzorcem (wyznaczane przy pierwszym użyciu)
+    private SearchTerms searchTerms;
+    // Poziom wartości wzorca (-1 = jeszcze nie wyznaczony)
+    private volatile int valueTier = -1;
+
+    ItemPrototype(ItemKey key) {
+        this.key = key;
+    }
+
+    /**
+     * Tworzy nowy ItemStack z podaną ilością (wzorzec się nie zmienia)
+     */
+    public ItemStack create(int amount) {
+        return key.getPrototype().asQuantity(amount);
+    }
+
+    /**
+     * Pobiera wzorzec tylko do odczytu (ilość 1) - nie wolno go modyfikować ani oddawać graczom
+     */
+    ItemStack getTemplate() {
+        return key.getPrototype();
+    }
+
+    SearchTerms getSearchTerms() {
+        return searchTerms;
+    }
+
+    void setSearchTerms(SearchTerms searchTerms) {
+        this.searchTerms = searchTerms;
+    }
+
+    /**
+     * Pobiera poziom wartości wzorca, liczony raz dla wszystkich wpisów z tym wzorcem
+     */
+    int getValueTier() {
+        int tier = valueTier;
+        if (tier < 0) {
+            tier = valueTierOf(getTemplate());
+            valueTier = tier;
+        }
+        return tier;
+    }
+
+    ItemKey getKey() {
+        return key;
+    }
+
+    /**
+     * Sprawdza, czy wzorzec jest używany przez więcej niż jeden wpis
+     */
+    boolean isShared() {
+        return references > 1;
+    }
+
+    void retain() {
+        references++;
+    }
+
+    /**
+     * @return true, jeśli wzorzec nie jest już używany
+     */
+    boolean releaseReference() {
+        return --references == 0;
+    }
+
+    /**
+     * Poziom wartości przedmiotu (0 = najtańsze)
+     * 0 - zwykłe bez meta, 1 - zwykłe z meta (nazwa, enchanty...), 2 - uncommon, 3 - rare, 4 - epic
+     */
+    static int valueTierOf(ItemStack item) {
+        int tier = switch (item.getRarity()) {
+            case COMMON -> 0;
+            case UNCOMMON -> 2;
+            case RARE -> 3;
+            case EPIC -> 4;
+        };
+        if (tier == 0 && item.hasItemMeta()) {
+            tier = 1;
+        }
+        return tier;
+    }
+}
@@ -0,0 +1,31 @@
+package dev.tremeq.abyss.storage;
+
+/**
+ * Niezmienny, wersjonowany stan magazynu publikowany po każdym zapisie
+ *
+ * Wszystkie wpisy i partycje kategorii są publikowane razem jednym zapisem, więc czytelnik
+ * nigdy nie zobaczy magazynu z jednego zapisu, a partycji z innego. Wersja rośnie przy każdej
+ * publikacji - GUI porównuje ją z wersją ostatnio wyrenderowanej strony i pomija strony bez zmian.
+ *
+ * @param version numer publikacji (rośnie przy każdej zmianie magazynu)
+ * @param entries niezmienna kopia wszystkich wpisów
+ * @param partitions niezmienne kopie partycji (indeks tablicy = kategoria); tablicy nie wolno zmieniać
+ * @param storedBytes szacunkowy rozmiar magazynu w bajtach
+ * @param searchEnabled czy wyszukiwanie jest włączone
+ * @param indexing czy część wpisów z dysku czeka jeszcze na zaindeksowanie
+ */
+public record PageSnapshot(long version, EntryList entries, EntryList[] partitions,
+                           long storedBytes, boolean searchEnabled, boolean indexing) {
+
+    /**
+     * Pobiera wpisy widoczne w zakładce
+     * @param category kategoria lub -1 dla całego magazynu
+     * @return niezmienna lista lub null, jeśli takiej kategorii nie ma
+     */
+    public EntryList source(int category) {
+        if (category < 0) {
+            return entries;
+        }
+        return category < partitions.length ? partitions[category] : null;
+    }
+}
@@ -0,0 +1,61 @@
+package dev.tremeq.abyss.storage;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tablica internowanych wzorców przedmiotów z licznikiem referencji
+ * Tysiące wpisów z tym samym przedmiotem (zgniłe mięso, strzały, kości) dzielą jedną metę.
+ * Wzorzec, którego nie używa już żaden wpis, jest usuwany z tablicy.
+ *
+ * Klasa nie jest thread-safe - wywoływana pod blokadą magazynu.
+ */
+public final class PrototypeTable {
+    private final Map<ItemKey, ItemPrototype> prototypes = new HashMap<>();
+
+    /**
+     * Pobiera (lub tworzy) wzorzec dla klucza i zwiększa jego licznik referencji
+     */
+    public ItemPrototype acquire(ItemKey key) {
+        ItemPrototype prototype = prototypes.computeIfAbsent(key, ItemPrototype::new);
+        prototype.retain();
+        return prototype;
+    }
+
+    /**
+     * Pobiera wzorzec dla przedmiotu i zwiększa jego licznik referencji
+     */
+    public ItemPrototype acquire(ItemStack item) {
+        return acquire(ItemKey.of(item));
+    }
+
+    /**
+     * Pobiera istniejący wzorzec i zwiększa jego licznik referencji
+     * @return wzorzec lub null, jeśli żaden wpis nie ma takiego przedmiotu
+     */
+    ItemPrototype acquireExisting(ItemKey key) {
+        ItemPrototype prototype = prototypes.get(key);
+        if (prototype != null) {
+            prototype.retain();
+        }
+        return prototype;
+    }
+
+    /**
+     * Zmniejsza licznik referencji - nieużywany wzorzec jest usuwany z tablicy
+     */
+    public void release(ItemPrototype prototype) {
+        if (prototype.releaseReference()) {
+            prototypes.remove(prototype.getKey(), prototype);
+        }
+    }
+
+    /**
+     * Pobiera ilość różnych wzorców w tablicy
+     */
+    public int size() {
+        return prototypes.size();
+    }
+}
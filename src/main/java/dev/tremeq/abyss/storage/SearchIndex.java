@@ -0,0 +1,397 @@
+package dev.tremeq.abyss.storage;
+
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Indeks odwrócony magazynu - materiał -> wpisy oraz słowo -> wpisy
+ *
+ * Każda lista wpisów jest posortowana po identyfikatorze (czyli w kolejności magazynu), więc
+ * wynik wyszukiwania to przecięcie list, a nie przeglądanie całego magazynu. Indeks jest
+ * aktualizowany przy każdym dodaniu, zmianie i usunięciu wpisu, a wyniki zapytań są pamiętane
+ * do następnej zmiany.
+ *
+ * Klasa nie jest thread-safe - wywoływana pod blokadą magazynu.
+ */
+public final class SearchIndex {
+    private static final Comparator<AbyssEntry> BY_ID = Comparator.comparingLong(AbyssEntry::getId);
+
+    private final Map<Material, PostingList> materials = new EnumMap<>(Material.class);
+    // Posortowane słowa - wyszukiwanie po początku słowa to wycinek mapy
+    private final TreeMap<String, PostingList> tokens = new TreeMap<>();
+    private final Map<SearchQuery, SearchResult> cache = new HashMap<>();
+    // Terminy, pod którymi wpis jest w indeksie (brak = jeszcze nie zaindeksowany)
+    private final Map<AbyssEntry, SearchTerms> entryTerms = new HashMap<>();
+    // Kategoria wpisu (zakładka GUI) według magazynu, -1 = brak
+    private final ToIntFunction<AbyssEntry> categoryOf;
+
+    /**
+     * @param categoryOf kategoria wpisu w magazynie (do zapytań ograniczonych do zakładki)
+     */
+    public SearchIndex(ToIntFunction<AbyssEntry> categoryOf) {
+        this.categoryOf = categoryOf;
+    }
+
+    /**
+     * Buduje indeks od zera z wpisów magazynu
+     * Wpisy dostępne bez deserializacji są indeksowane od razu
+     * @return wpisy z dysku do zaindeksowania w tle (posortowane po identyfikatorze)
+     */
+    public List<AbyssEntry> rebuild(List<AbyssEntry> entries) {
+        List<AbyssEntry> pending = new ArrayList<>();
+        for (AbyssEntry entry : entries) {
+            if (entry.isLoaded()) {
+                add(entry);
+            } else {
+                pending.add(entry);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Indeksuje nowy wpis (przedmiot musi być dostępny bez deserializacji)
+     */
+    public void add(AbyssEntry entry) {
+        add(entry, termsOf(entry));
+    }
+
+    /**
+     * Indeksuje wpis z podanymi terminami (np. wyznaczonymi w tle)
+     */
+    private void add(AbyssEntry entry, SearchTerms terms) {
+        entryTerms.put(entry, terms);
+        list(materials, terms.getMaterial()).add(entry);
+        for (String token : terms.getTokens()) {
+            tokens.computeIfAbsent(token, key -> new PostingList()).add(entry);
+        }
+        cache.clear();
+    }
+
+    /**
+     * Indeksuje paczkę wpisów z terminami wyznaczonymi w tle (wpisy posortowane po identyfikatorze)
+     * Wpisy w międzyczasie usunięte lub już zaindeksowane są pomijane
+     * @param terms terminy dla kolejnych wpisów (null = nie udało się odczytać przedmiotu)
+     */
+    public void addAll(List<AbyssEntry> entries, SearchTerms[] terms) {
+        // Zbierz wpisy dla każdej listy, a potem scal każdą listę raz
+        Map<PostingList, List<AbyssEntry>> additions = new IdentityHashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            AbyssEntry entry = entries.get(i);
+            SearchTerms batchTerms = terms[i];
+            if (batchTerms == null || entry.isRemoved() || entryTerms.containsKey(entry)) {
+                continue;
+            }
+
+            entryTerms.put(entry, batchTerms);
+            additions.computeIfAbsent(list(materials, batchTerms.getMaterial()), key -> new ArrayList<>()).add(entry);
+            for (String token : batchTerms.getTokens()) {
+                PostingList list = tokens.computeIfAbsent(token, key -> new PostingList());
+                additions.computeIfAbsent(list, key -> new ArrayList<>()).add(entry);
+            }
+        }
+
+        for (Map.Entry<PostingList, List<AbyssEntry>> addition : additions.entrySet()) {
+            addition.getKey().merge(addition.getValue());
+        }
+        if (!additions.isEmpty()) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Usuwa wpis z indeksu (wpis niezaindeksowany jest pomijany)
+     */
+    public void remove(AbyssEntry entry) {
+        SearchTerms terms = entryTerms.remove(entry);
+        if (terms == null) {
+            return;
+        }
+
+        PostingList materialList = materials.get(terms.getMaterial());
+        if (materialList != null && materialList.remove(entry) && materialList.isEmpty()) {
+            materials.remove(terms.getMaterial());
+        }
+        for (String token : terms.getTokens()) {
+            PostingList list = tokens.get(token);
+            if (list != null && list.remove(entry) && list.isEmpty()) {
+                tokens.remove(token);
+            }
+        }
+
+        cache.clear();
+    }
+
+    /**
+     * Indeksuje wpis ponownie po zmianie przedmiotu
+     */
+    public void update(AbyssEntry entry) {
+        remove(entry);
+        add(entry);
+    }
+
+    /**
+     * Wyszukuje wpisy spełniające wszystkie warunki zapytania
+     */
+    public SearchResult query(SearchQuery query) {
+        SearchResult cached = cache.get(query);
+        if (cached != null) {
+            return cached;
+        }
+
+        SearchResult result = evaluate(query);
+        cache.put(query, result);
+        return result;
+    }
+
+    /**
+     * Zapomina zapamiętane wyniki (np. po przypisaniu wpisom nowych kategorii lub zmianie ilości)
+     */
+    public void clearCache() {
+        cache.clear();
+    }
+
+    /**
+     * Pobiera ilość zaindeksowanych wpisów
+     */
+    public int getIndexedCount() {
+        return entryTerms.size();
+    }
+
+    private SearchResult evaluate(SearchQuery query) {
+        List<AbyssEntry[]> groups = new ArrayList<>();
+
+        if (query.material() != null) {
+            PostingList list = materials.get(query.material());
+            if (list == null) {
+                return SearchResult.EMPTY;
+            }
+            groups.add(list.toArray());
+        }
+
+        for (String word : query.words()) {
+            // Wszystkie słowa zaczynające się od wpisanego tekstu
+            SortedMap<String, PostingList> matches = tokens.subMap(word, word + Character.MAX_VALUE);
+            if (matches.isEmpty()) {
+                return SearchResult.EMPTY;
+            }
+            groups.add(union(matches.values()));
+        }
+
+        if (groups.isEmpty()) {
+            return SearchResult.EMPTY;
+        }
+
+        // Przecinanie od najmniejszej grupy - reszta jest tylko sprawdzana wyszukiwaniem binarnym
+        groups.sort(Comparator.comparingInt(group -> group.length));
+        AbyssEntry[] result = groups.get(0);
+        for (int g = 1; g < groups.size() && result.length > 0; g++) {
+            AbyssEntry[] other = groups.get(g);
+            AbyssEntry[] kept = new AbyssEntry[result.length];
+            int count = 0;
+            for (AbyssEntry entry : result) {
+                if (Arrays.binarySearch(other, entry, BY_ID) >= 0) {
+                    kept[count++] = entry;
+                }
+            }
+            result = Arrays.copyOf(kept, count);
+        }
+
+        if (query.category() >= 0) {
+            // Kategoria nie ma własnej listy - wynik jest już mały, wystarczy go przefiltrować
+            int count = 0;
+            AbyssEntry[] kept = new AbyssEntry[result.length];
+            for (AbyssEntry entry : result) {
+                if (categoryOf.applyAsInt(entry) == query.category()) {
+                    kept[count++] = entry;
+                }
+            }
+            result = Arrays.copyOf(kept, count);
+        }
+        return new SearchResult(result);
+    }
+
+    /**
+     * Łączy kilka list w jedną posortowaną tablicę bez powtórzeń
+     */
+    private static AbyssEntry[] union(Iterable<PostingList> lists) {
+        List<AbyssEntry[]> arrays = new ArrayList<>();
+        int total = 0;
+        for (PostingList list : lists) {
+            AbyssEntry[] array = list.toArray();
+            arrays.add(array);
+            total += array.length;
+        }
+        if (arrays.size() == 1) {
+            return arrays.get(0);
+        }
+
+        AbyssEntry[] all = new AbyssEntry[total];
+        int position = 0;
+        for (AbyssEntry[] array : arrays) {
+            System.arraycopy(array, 0, all, position, array.length);
+            position += array.length;
+        }
+        Arrays.sort(all, BY_ID);
+
+        int count = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (count == 0 || all[count - 1] != all[i]) {
+                all[count++] = all[i];
+            }
+        }
+        return Arrays.copyOf(all, count);
+    }
+
+    private static <K> PostingList list(Map<K, PostingList> lists, K key) {
+        return lists.computeIfAbsent(key, ignored -> new PostingList());
+    }
+
+    /**
+     * Terminy wpisu - wpisy ze wspólnym wzorcem dzielą je z innymi wpisami
+     */
+    private static SearchTerms termsOf(AbyssEntry entry) {
+        ItemPrototype prototype = entry.getPrototype();
+        if (prototype != null) {
+            SearchTerms terms = prototype.getSearchTerms();
+            if (terms == null) {
+                terms = SearchTerms.of(prototype.getTemplate());
+                prototype.setSearchTerms(terms);
+            }
+            return terms;
+        }
+        return SearchTerms.of(entry.getItem());
+    }
+
+    /**
+     * Lista wpisów posortowana po identyfikatorze
+     * Usunięte pozycje zostają jako puste miejsca (identyfikator zostaje dla wyszukiwania binarnego),
+     * a lista jest zagęszczana, gdy pustych miejsc jest więcej niż wpisów
+     */
+    private static final class PostingList {
+        private long[] ids = new long[4];
+        private AbyssEntry[] entries = new AbyssEntry[4];
+        private int size;
+        private int live;
+
+        void add(AbyssEntry entry) {
+            long id = entry.getId();
+            if (size == ids.length) {
+                grow(size + 1);
+            }
+
+            // Nowe wpisy mają największy identyfikator - zwykle to dopisanie na końcu
+            int index = size;
+            if (size > 0 && ids[size - 1] >= id) {
+                int found = Arrays.binarySearch(ids, 0, size, id);
+                if (found >= 0) {
+                    // Ponowne dodanie po zmianie przedmiotu - wpis wraca na swoje puste miejsce
+                    if (entries[found] == null) {
+                        entries[found] = entry;
+                        live++;
+                    }
+                    return;
+                }
+                index = -found - 1;
+                System.arraycopy(ids, index, ids, index + 1, size - index);
+                System.arraycopy(entries, index, entries, index + 1, size - index);
+            }
+            ids[index] = id;
+            entries[index] = entry;
+            size++;
+            live++;
+        }
+
+        /**
+         * Scala posortowaną paczkę wpisów z listą w jednym przejściu
+         */
+        void merge(List<AbyssEntry> batch) {
+            long[] mergedIds = new long[live + batch.size()];
+            AbyssEntry[] mergedEntries = new AbyssEntry[mergedIds.length];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < batch.size()) {
+                if (i < size && entries[i] == null) {
+                    i++;
+                    continue;
+                }
+                if (j >= batch.size() || (i < size && ids[i] < batch.get(j).getId())) {
+                    mergedIds[count] = ids[i];
+                    mergedEntries[count++] = entries[i++];
+                } else {
+                    AbyssEntry entry = batch.get(j++);
+                    mergedIds[count] = entry.getId();
+                    mergedEntries[count++] = entry;
+                }
+            }
+            ids = mergedIds;
+            entries = mergedEntries;
+            size = count;
+            live = count;
+        }
+
+        /**
+         * @return true, jeśli wpis był na liście
+         */
+        boolean remove(AbyssEntry entry) {
+            int index = Arrays.binarySearch(ids, 0, size, entry.getId());
+            if (index < 0 || entries[index] == null) {
+                return false;
+            }
+            entries[index] = null;
+            live--;
+            if (live > 0 && size - live > live) {
+                compact();
+            }
+            return true;
+        }
+
+        boolean isEmpty() {
+            return live == 0;
+        }
+
+        /**
+         * Kopiuje żywe wpisy do tablicy posortowanej po identyfikatorze
+         */
+        AbyssEntry[] toArray() {
+            AbyssEntry[] result = new AbyssEntry[live];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (entries[i] != null) {
+                    result[count++] = entries[i];
+                }
+            }
+            return result;
+        }
+
+        private void compact() {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (entries[i] != null) {
+                    ids[count] = ids[i];
+                    entries[count++] = entries[i];
+                }
+            }
+            Arrays.fill(entries, count, size, null);
+            size = count;
+        }
+
+        private void grow(int minCapacity) {
+            int capacity = Math.max(minCapacity, ids.length * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            entries = Arrays.copyOf(entries, capacity);
+        }
+    }
+}
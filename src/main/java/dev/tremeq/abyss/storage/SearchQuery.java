@@ -0,0 +1,60 @@
+package dev.tremeq.abyss.storage;
+
+import org.bukkit.Material;
+
+import java.util.List;
+
+/**
+ * Zapytanie do indeksu wyszukiwania - wszystkie warunki muszą być spełnione
+ * @param material wymagany materiał (null = dowolny)
+ * @param category wymagana kategoria - zakładka GUI (-1 = dowolna)
+ * @param words słowa, od których muszą zaczynać się słowa nazwy, lore lub materiału
+ * @param text tekst wpisany przez gracza (do wiadomości)
+ */
+public record SearchQuery(Material material, int category, List<String> words, String text) {
+
+    public SearchQuery {
+        words = List.copyOf(words);
+    }
+
+    /**
+     * Tworzy zapytanie z tekstu wpisanego przez gracza
+     */
+    public static SearchQuery of(Material material, String text) {
+        return new SearchQuery(material, -1, SearchTerms.tokenize(text), text);
+    }
+
+    /**
+     * Zwraca to samo zapytanie z innym materiałem
+     */
+    public SearchQuery withMaterial(Material material) {
+        return new SearchQuery(material, category, words, text);
+    }
+
+    /**
+     * Zwraca to samo zapytanie ograniczone do kategorii (zakładki, w której gracz szuka)
+     */
+    public SearchQuery withCategory(int category) {
+        return new SearchQuery(material, category, words, text);
+    }
+
+    /**
+     * Sprawdza, czy zapytanie cokolwiek ogranicza
+     * Sama kategoria nie jest wyszukiwaniem - zakładkę pokazuje partycja magazynu
+     */
+    public boolean isEmpty() {
+        return material == null && words.isEmpty();
+    }
+
+    // Tekst nie wpływa na wynik - porównujemy tylko warunki (wspólny cache dla różnych zapisów)
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SearchQuery other && material == other.material && category == other.category
+                && words.equals(other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (material != null ? material.hashCode() : 0) + category) + words.hashCode();
+    }
+}
@@ -0,0 +1,76 @@
+package dev.tremeq.abyss.storage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Niezmienny wynik wyszukiwania - pasujące wpisy w kolejności magazynu
+ * Stronicowanie to wycinek tablicy, bez przeglądania całego magazynu
+ * Kolejność dla innych trybów sortowania jest liczona raz na wynik i pamiętana
+ */
+public final class SearchResult {
+    static final SearchResult EMPTY = new SearchResult(new AbyssEntry[0]);
+
+    private final AbyssEntry[] entries;
+    // Wpisy posortowane w innych trybach (indeks = SortMode.ordinal(), null = jeszcze nie liczone)
+    private final AbyssEntry[][] sorted = new AbyssEntry[SortMode.values().length][];
+
+    SearchResult(AbyssEntry[] entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Pobiera ilość pasujących wpisów
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Pobiera wpisy dla konkretnej strony wyniku
+     */
+    public List<AbyssEntry> getPage(int page, int itemsPerPage) {
+        return getPage(page, itemsPerPage, SortMode.OLDEST);
+    }
+
+    /**
+     * Pobiera wpisy dla konkretnej strony wyniku w podanej kolejności
+     */
+    public List<AbyssEntry> getPage(int page, int itemsPerPage, SortMode mode) {
+        int from = page * itemsPerPage;
+        if (from < 0 || from >= entries.length) {
+            return Collections.emptyList();
+        }
+        int to = Math.min(from + itemsPerPage, entries.length);
+        return Arrays.asList(ordered(mode)).subList(from, to);
+    }
+
+    /**
+     * Oblicza liczbę stron wyniku
+     */
+    public int getTotalPages(int itemsPerPage) {
+        if (entries.length == 0) {
+            return 1;
+        }
+        return (entries.length + itemsPerPage - 1) / itemsPerPage;
+    }
+
+    private AbyssEntry[] ordered(SortMode mode) {
+        if (mode == SortMode.OLDEST) {
+            return entries;
+        }
+
+        AbyssEntry[] result = sorted[mode.ordinal()];
+        if (result == null) {
+            result = entries.clone();
+            if (mode == SortMode.NEWEST) {
+                Collections.reverse(Arrays.asList(result));
+            } else {
+                Arrays.sort(result, mode.comparator());
+            }
+            sorted[mode.ordinal()] = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,96 @@
+package dev.tremeq.abyss.storage;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Terminy, pod którymi wpis jest widoczny w indeksie wyszukiwania
+ * Materiał oraz słowa z nazwy materiału, nazwy wyświetlanej i lore (małymi literami, bez kodów kolorów)
+ */
+public final class SearchTerms {
+    // Krótsze słowa (np. "a", "i") nie są indeksowane
+    static final int MIN_TOKEN_LENGTH = 2;
+
+    private final Material material;
+    private final String[] tokens;
+
+    private SearchTerms(Material material, String[] tokens) {
+        this.material = material;
+        this.tokens = tokens;
+    }
+
+    /**
+     * Wyznacza terminy przedmiotu (bezpieczne poza głównym wątkiem - tylko odczyt mety)
+     */
+    public static SearchTerms of(ItemStack item) {
+        Set<String> tokens = new LinkedHashSet<>();
+        tokenize(item.getType().name(), tokens);
+
+        if (item.hasItemMeta()) {
+            ItemMeta meta = item.getItemMeta();
+            PlainTextComponentSerializer plain = PlainTextComponentSerializer.plainText();
+            Component name = meta.displayName();
+            if (name != null) {
+                tokenize(plain.serialize(name), tokens);
+            }
+            List<Component> lore = meta.lore();
+            if (lore != null) {
+                for (Component line : lore) {
+                    tokenize(plain.serialize(line), tokens);
+                }
+            }
+        }
+
+        return new SearchTerms(item.getType(), tokens.toArray(new String[0]));
+    }
+
+    /**
+     * Dzieli tekst na słowa - małe litery, tylko litery i cyfry, kody kolorów § są pomijane
+     */
+    public static List<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        tokenize(text, tokens);
+        return new ArrayList<>(tokens);
+    }
+
+    private static void tokenize(String text, Set<String> tokens) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '§') {
+                // Kod koloru - pomiń znak po §
+                i++;
+                addToken(word, tokens);
+            } else if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else {
+                addToken(word, tokens);
+            }
+        }
+        addToken(word, tokens);
+    }
+
+    private static void addToken(StringBuilder word, Set<String> tokens) {
+        if (word.length() >= MIN_TOKEN_LENGTH) {
+            tokens.add(word.toString().toLowerCase(Locale.ROOT));
+        }
+        word.setLength(0);
+    }
+
+    public Material getMaterial() {
+        return material;
+    }
+
+    String[] getTokens() {
+        return tokens;
+    }
+}
@@ -0,0 +1,281 @@
+package dev.tremeq.abyss.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Posortowany widok magazynu dla jednego trybu sortowania - indeksowana lista z przeskokami (skip list)
+ *
+ * Węzły są uporządkowane po (klucz trybu, identyfikator). Każde połączenie pamięta, ile węzłów
+ * przeskakuje, więc znalezienie n-tego wpisu to O(log n), a strona GUI to O(log n + rozmiar strony)
+ * - bez sortowania całego magazynu przy każdym renderze. Dodanie, usunięcie i zmiana klucza
+ * wpisu to O(log n).
+ *
+ * Węzeł wpisu (razem z kluczem, pod którym leży w liście) jest zapamiętany w mapie widoku - usunięcie
+ * klucza nie przelicza, a wpis nie wie, w których widokach leży. Dzięki temu widok może być budowany
+ * w tle, zanim zostanie opublikowany, bez zapisów do współdzielonych wpisów.
+ * Do listy trafiają tylko wpisy ze znanym materiałem i ilością ({@link AbyssEntry#isResolved()}),
+ * żeby budowa widoku nie deserializowała magazynu wczytanego z dysku.
+ *
+ * Klasa nie jest thread-safe - opublikowany widok jest wywoływany tylko pod blokadą magazynu.
+ */
+public final class SortIndex {
+    private static final int MAX_LEVEL = 16;
+
+    private final SortMode mode;
+    private final Node head = new Node(null, Long.MIN_VALUE, MAX_LEVEL);
+    // Węzły wpisów obecnych w liście
+    private final Map<AbyssEntry, Node> nodes = new HashMap<>();
+    private int level = 1;
+    private int size;
+    private int seed = 0x2545F491;
+
+    public SortIndex(SortMode mode) {
+        this.mode = mode;
+    }
+
+    public SortMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Dodaje wpisy magazynu (wpisy usunięte, już obecne i bez znanego przedmiotu są pomijane)
+     * Pusta lista jest budowana w jednym przejściu po posortowaniu wpisów
+     */
+    public void addAll(List<AbyssEntry> entries) {
+        if (size > 0) {
+            for (AbyssEntry entry : entries) {
+                add(entry);
+            }
+            return;
+        }
+
+        // Poziom węzła nie zależy od pozycji - węzły można utworzyć przed sortowaniem
+        List<Node> accepted = new ArrayList<>(entries.size());
+        for (AbyssEntry entry : entries) {
+            if (accepts(entry)) {
+                Node node = new Node(entry, mode.key(entry), randomLevel());
+                nodes.put(entry, node);
+                accepted.add(node);
+            }
+        }
+        accepted.sort((a, b) -> compare(a.key, a.entry.getId(), b.key, b.entry.getId()));
+        build(accepted);
+    }
+
+    /**
+     * Dodaje wpis (wpis usunięty, już obecny lub bez znanego przedmiotu jest pomijany)
+     */
+    public void add(AbyssEntry entry) {
+        if (accepts(entry)) {
+            insert(entry, mode.key(entry));
+        }
+    }
+
+    /**
+     * Usuwa wpis z listy (wpis nieobecny jest pomijany)
+     */
+    public void remove(AbyssEntry entry) {
+        Node node = nodes.remove(entry);
+        if (node == null) {
+            return;
+        }
+        long key = node.key;
+
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && compare(x.next[i], key, entry.getId()) < 0) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        Node target = x.next[0];
+        if (target == node) {
+            for (int i = 0; i < level; i++) {
+                if (update[i].next[i] == target) {
+                    update[i].width[i] += target.width[i] - 1;
+                    update[i].next[i] = target.next[i];
+                } else {
+                    update[i].width[i]--;
+                }
+            }
+            while (level > 1 && head.next[level - 1] == null) {
+                level--;
+            }
+            size--;
+        }
+    }
+
+    /**
+     * Przesuwa wpis po zmianie przedmiotu lub ilości (tylko gdy zmienił się jego klucz)
+     */
+    public void update(AbyssEntry entry) {
+        Node node = nodes.get(entry);
+        if (node == null) {
+            add(entry);
+            return;
+        }
+        if (mode.key(entry) != node.key) {
+            remove(entry);
+            add(entry);
+        }
+    }
+
+    /**
+     * Pobiera wpisy dla konkretnej strony widoku
+     */
+    public List<AbyssEntry> getPage(int page, int itemsPerPage) {
+        int from = page * itemsPerPage;
+        if (from < 0 || from >= size) {
+            return Collections.emptyList();
+        }
+
+        // Zejście po połączeniach do węzła o pozycji from + 1 (pozycje liczone od 1)
+        int target = from + 1;
+        int traversed = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.width[i] <= target) {
+                traversed += x.width[i];
+                x = x.next[i];
+            }
+        }
+
+        int count = Math.min(itemsPerPage, size - from);
+        List<AbyssEntry> result = new ArrayList<>(count);
+        for (int i = 0; i < count && x != null; i++) {
+            result.add(x.entry);
+            x = x.next[0];
+        }
+        return result;
+    }
+
+    /**
+     * Usuwa wszystkie wpisy z widoku (np. przed porzuceniem widoku po zmianie kategorii)
+     */
+    public void clear() {
+        nodes.clear();
+        Arrays.fill(head.next, null);
+        Arrays.fill(head.width, 0);
+        level = 1;
+        size = 0;
+    }
+
+    /**
+     * Pobiera ilość wpisów w widoku
+     */
+    public int size() {
+        return size;
+    }
+
+    private boolean accepts(AbyssEntry entry) {
+        return !entry.isRemoved() && entry.isResolved() && !nodes.containsKey(entry);
+    }
+
+    private void insert(AbyssEntry entry, long key) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && compare(x.next[i], key, entry.getId()) < 0) {
+                rank[i] += x.width[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.width[i] = size;
+            }
+            level = nodeLevel;
+        }
+
+        Node node = new Node(entry, key, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.width[i] = update[i].width[i] - (rank[0] - rank[i]);
+            update[i].width[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].width[i]++;
+        }
+        size++;
+        nodes.put(entry, node);
+    }
+
+    /**
+     * Buduje pustą listę z posortowanych węzłów, dopisując każdy węzeł na końcu każdego poziomu
+     */
+    private void build(List<Node> sorted) {
+        Node[] last = new Node[MAX_LEVEL];
+        int[] lastRank = new int[MAX_LEVEL];
+        Arrays.fill(last, head);
+
+        int rank = 0;
+        for (Node node : sorted) {
+            rank++;
+            int nodeLevel = node.next.length;
+            for (int i = 0; i < nodeLevel; i++) {
+                last[i].next[i] = node;
+                last[i].width[i] = rank - lastRank[i];
+                last[i] = node;
+                lastRank[i] = rank;
+            }
+            level = Math.max(level, nodeLevel);
+        }
+
+        size = rank;
+        // Ostatni węzeł poziomu "przeskakuje" wszystkie węzły za nim (tak jak przy wstawianiu)
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            last[i].width[i] = size - lastRank[i];
+        }
+    }
+
+    /**
+     * Losuje poziom węzła - każdy kolejny poziom z prawdopodobieństwem 1/4
+     */
+    private int randomLevel() {
+        // xorshift - wystarczy do rozkładu poziomów, bez współdzielonego Random
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        int nodeLevel = 1 + Integer.numberOfTrailingZeros(seed | (1 << 30)) / 2;
+        return Math.min(nodeLevel, MAX_LEVEL);
+    }
+
+    private static int compare(Node node, long key, long id) {
+        return compare(node.key, node.entry.getId(), key, id);
+    }
+
+    private static int compare(long keyA, long idA, long keyB, long idB) {
+        int result = Long.compare(keyA, keyB);
+        return result != 0 ? result : Long.compare(idA, idB);
+    }
+
+    private static final class Node {
+        private final AbyssEntry entry;
+        private final long key;
+        private final Node[] next;
+        // Ile węzłów przeskakuje połączenie na danym poziomie
+        private final int[] width;
+
+        Node(AbyssEntry entry, long key, int level) {
+            this.entry = entry;
+            this.key = key;
+            this.next = new Node[level];
+            this.width = new int[level];
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package dev.tremeq.abyss.storage;
+
+import org.bukkit.Material;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Kolejność przedmiotów w GUI
+ * OLDEST i NEWEST to kolejność magazynu (bez indeksu), pozostałe tryby mają własny {@link SortIndex}
+ */
+public enum SortMode {
+    OLDEST,
+    NEWEST,
+    MATERIAL,
+    AMOUNT,
+    RARITY;
+
+    private static final SortMode[] VALUES = values();
+
+    /**
+     * Sprawdza, czy tryb wymaga osobnego indeksu (kolejność inna niż kolejność magazynu)
+     */
+    public boolean isIndexed() {
+        return this == MATERIAL || this == AMOUNT || this == RARITY;
+    }
+
+    /**
+     * Pobiera następny tryb (przycisk sortowania przełącza je po kolei)
+     */
+    public SortMode next() {
+        return VALUES[(ordinal() + 1) % VALUES.length];
+    }
+
+    /**
+     * Pobiera poprzedni tryb
+     */
+    public SortMode previous() {
+        return VALUES[(ordinal() + VALUES.length - 1) % VALUES.length];
+    }
+
+    /**
+     * Klucz sortowania wpisu - mniejszy klucz jest wcześniej, równe klucze w kolejności magazynu
+     * Wpis z nieznanym materiałem lub ilością zostanie przy tym zdeserializowany
+     */
+    long key(AbyssEntry entry) {
+        return switch (this) {
+            // Alfabetycznie po materiale, w obrębie materiału największe stacki najpierw
+            case MATERIAL -> ((long) MaterialOrder.RANKS[entry.getType().ordinal()] << 32) - entry.getAmount();
+            case AMOUNT -> -entry.getAmount();
+            case RARITY -> -entry.getValueTier();
+            case NEWEST -> -entry.getId();
+            case OLDEST -> entry.getId();
+        };
+    }
+
+    /**
+     * Porównanie wpisów według trybu (do sortowania małych zbiorów, np. wyników wyszukiwania)
+     */
+    Comparator<AbyssEntry> comparator() {
+        return Comparator.comparingLong(this::key).thenComparingLong(AbyssEntry::getId);
+    }
+
+    /**
+     * Pozycja materiału w kolejności alfabetycznej nazw (indeks = Material.ordinal())
+     * Liczona raz, przy pierwszym sortowaniu po materiale
+     */
+    private static final class MaterialOrder {
+        private static final int[] RANKS = buildRanks();
+
+        private static int[] buildRanks() {
+            Material[] materials = Material.values();
+            Material[] byName = materials.clone();
+            Arrays.sort(byName, Comparator.comparing(Material::name));
+
+            int[] ranks = new int[materials.length];
+            for (int i = 0; i < byName.length; i++) {
+                ranks[byName[i].ordinal()] = i;
+            }
+            return ranks;
+        }
+    }
+}
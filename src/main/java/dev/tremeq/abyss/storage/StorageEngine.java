@@ -0,0 +1,639 @@
+package dev.tremeq.abyss.storage;
+
+import dev.tremeq.abyss.Abyss;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * Trwały magazyn Otchłani na dysku
+ *
+ * Każda zmiana (dodanie / zabranie) trafia jako rekord binarny do dziennika (journal),
+ * który co jakiś czas jest kompaktowany do snapshotu. Przy starcie wczytywany jest
+ * snapshot i odtwarzany dziennik. Wszystkie operacje dyskowe wykonuje osobny wątek -
+ * główny wątek serwera tylko wrzuca operacje do kolejki.
+ *
+ * Pliki w katalogu danych:
+ * - snapshot-N.dat - pełny stan magazynu w chwili kompaktacji N
+ * - journal-N.log  - zmiany wykonane po snapshocie N
+ *
+ * Snapshot jest mapowany do pamięci (FileChannel.map) i ma indeks o stałej szerokości,
+ * więc start nie deserializuje żadnego przedmiotu - wpisy wskazują tylko fragmenty pliku.
+ * Układ snapshotu:
+ * - nagłówek: [magic:4][wersja:4][lastId:8][ilość:4][pozycja indeksu:8]
+ * - dane:     zserializowane przedmioty jeden za drugim
+ * - indeks:   ilość x [id:8][czas dodania:8][pozycja:8][długość:4]
+ *
+ * Rekord PUT dziennika: [id:8][czas dodania:8][przedmiot]
+ */
+public class StorageEngine {
+    private static final int SNAPSHOT_MAGIC = 0x41425953; // "ABYS"
+    private static final int JOURNAL_MAGIC = 0x4142594A;  // "ABYJ"
+    // Wspólna wersja snapshotu i dziennika
+    private static final int FORMAT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER_SIZE = 28;
+    private static final int INDEX_ENTRY_SIZE = 28;
+    private static final int JOURNAL_HEADER_SIZE = 16;
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_CLEAR = 3;
+
+    private final Abyss plugin;
+    private final File directory;
+    private final int compactThreshold;
+    private final boolean fsync;
+    private final BlockingQueue<Op> queue;
+
+    // Licznik rekordów od ostatniej kompaktacji (modyfikowany pod blokadą menedżera)
+    private int opsSinceCompaction;
+    private long lastId;
+
+    // Stan wątku zapisującego
+    private Thread writer;
+    private long generation;
+    private long journalValidLength;
+    private FileOutputStream journalFile;
+    private DataOutputStream journal;
+    private final CRC32 crc = new CRC32();
+
+    public StorageEngine(Abyss plugin, File directory, int compactThreshold, boolean fsync) {
+        this.plugin = plugin;
+        this.directory = directory;
+        this.compactThreshold = Math.max(1, compactThreshold);
+        this.fsync = fsync;
+        this.queue = new LinkedBlockingQueue<>();
+    }
+
+    /**
+     * Wczytuje zawartość magazynu z dysku (snapshot + dziennik)
+     * Wywoływane raz przy starcie, przed {@link #start()}
+     */
+    public List<AbyssEntry> load() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Nie można utworzyć katalogu danych: " + directory);
+        }
+
+        generation = findLatestGeneration();
+
+        // Wpisy są leniwe - przedmioty deserializują się dopiero przy wyświetleniu lub zabraniu
+        List<AbyssEntry> entries = new ArrayList<>();
+        File snapshot = snapshotFile(generation);
+        if (snapshot.exists()) {
+            entries = readSnapshot(snapshot);
+        }
+
+        File journalPath = journalFile(generation);
+        journalValidLength = 0;
+        if (journalPath.exists()) {
+            entries = replayJournal(journalPath, entries);
+        }
+
+        return entries;
+    }
+
+    /**
+     * Uruchamia wątek zapisujący
+     */
+    public void start() {
+        writer = new Thread(this::runWriter, "Abyss-Storage");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Zapisuje (dodaje lub nadpisuje) wpis (wywoływane pod blokadą menedżera)
+     * Postać przedmiotu jest pobierana od razu, a serializowana na wątku zapisującym - ten nie może
+     * czytać wpisu, który główny wątek dalej zmienia (łączenie, zmiana ilości, podmiana)
+     */
+    public void logPut(AbyssEntry entry) {
+        lastId = Math.max(lastId, entry.getId());
+        enqueue(new PutOp(entry.captureState()));
+    }
+
+    /**
+     * Zapisuje usunięcie wpisu
+     */
+    public void logRemove(long id) {
+        enqueue(new RemoveOp(id));
+    }
+
+    /**
+     * Zapisuje wyczyszczenie całego magazynu
+     */
+    public void logClear() {
+        enqueue(new ClearOp());
+    }
+
+    /**
+     * Sprawdza, czy dziennik urósł na tyle, że warto go skompaktować
+     */
+    public boolean shouldCompact() {
+        return opsSinceCompaction >= compactThreshold;
+    }
+
+    /**
+     * Zleca kompaktację - zapis snapshotu w tle (wywoływane pod blokadą menedżera)
+     * Postać wpisów jest pobierana od razu (bez serializacji) - wątek zapisujący nie czyta żywych wpisów
+     */
+    public void compact(List<AbyssEntry> entries) {
+        opsSinceCompaction = 0;
+        List<EntryState> states = new ArrayList<>(entries.size());
+        for (AbyssEntry entry : entries) {
+            states.add(entry.captureState());
+        }
+        queue.offer(new CompactOp(states, lastId));
+    }
+
+    /**
+     * Zleca końcowy snapshot i zatrzymanie wątku zapisującego (wywoływane pod blokadą menedżera)
+     * Na zakończenie zapisu czeka {@link #awaitShutdown()}
+     */
+    public void stop(List<AbyssEntry> entries) {
+        if (writer == null) {
+            return;
+        }
+
+        // Końcowy snapshot tylko jeśli coś się zmieniło od ostatniej kompaktacji
+        if (opsSinceCompaction > 0) {
+            compact(entries);
+        }
+        queue.offer(new StopOp());
+    }
+
+    /**
+     * Czeka na zapis końcowego snapshotu (najwyżej 30 sekund)
+     * Blokuje - wywoływane tylko przy wyłączaniu pluginu, po {@link #stop}
+     */
+    public void awaitShutdown() {
+        if (writer == null) {
+            return;
+        }
+
+        try {
+            writer.join(30_000L);
+            if (writer.isAlive()) {
+                plugin.getLogger().severe("Zapis magazynu Otchłani nie zakończył się w ciągu 30 sekund!");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Pobiera najwyższy użyty identyfikator wpisu
+     */
+    public long getLastId() {
+        return lastId;
+    }
+
+    private void enqueue(Op op) {
+        opsSinceCompaction++;
+        queue.offer(op);
+    }
+
+    // ============================================================
+    //                      Wątek zapisujący
+    // ============================================================
+
+    private void runWriter() {
+        List<Op> batch = new ArrayList<>();
+        boolean running = true;
+
+        try {
+            openJournal();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Nie można otworzyć dziennika Otchłani", e);
+        }
+
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch);
+
+            for (Op op : batch) {
+                if (op instanceof StopOp) {
+                    running = false;
+                    continue;
+                }
+                try {
+                    apply(op);
+                } catch (Exception e) {
+                    plugin.getLogger().log(Level.SEVERE, "Błąd zapisu magazynu Otchłani", e);
+                }
+            }
+            batch.clear();
+
+            try {
+                flushJournal();
+            } catch (IOException e) {
+                plugin.getLogger().severe("Błąd zapisu dziennika Otchłani: " + e.getMessage());
+            }
+        }
+
+        closeJournal();
+    }
+
+    private void apply(Op op) throws IOException {
+        if (op instanceof PutOp put) {
+            EntryState state = put.state();
+            byte[] data;
+            try {
+                data = state.toBytes();
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Nie można zapisać przedmiotu #" + state.id() + " w dzienniku Otchłani", e);
+                return;
+            }
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(data.length + 16);
+            DataOutputStream out = new DataOutputStream(payload);
+            out.writeLong(state.id());
+            out.writeLong(state.createdAt());
+            out.write(data);
+            writeRecord(OP_PUT, payload.toByteArray());
+        } else if (op instanceof RemoveOp remove) {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(8);
+            new DataOutputStream(payload).writeLong(remove.id());
+            writeRecord(OP_REMOVE, payload.toByteArray());
+        } else if (op instanceof ClearOp) {
+            writeRecord(OP_CLEAR, new byte[0]);
+        } else if (op instanceof CompactOp compact) {
+            writeSnapshot(compact.entries(), compact.lastId());
+        }
+    }
+
+    /**
+     * Rekord dziennika: [typ:1][długość:4][dane][crc32:4]
+     */
+    private void writeRecord(byte type, byte[] payload) throws IOException {
+        if (journal == null) {
+            throw new IOException("Dziennik nie jest otwarty");
+        }
+
+        crc.reset();
+        crc.update(type);
+        crc.update(payload);
+
+        journal.writeByte(type);
+        journal.writeInt(payload.length);
+        journal.write(payload);
+        journal.writeInt((int) crc.getValue());
+    }
+
+    private void flushJournal() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        journal.flush();
+        if (fsync) {
+            journalFile.getChannel().force(false);
+        }
+    }
+
+    /**
+     * Zapisuje snapshot nowej generacji i przełącza dziennik na pusty plik tej generacji
+     */
+    private void writeSnapshot(List<EntryState> entries, long snapshotLastId) throws IOException {
+        long newGeneration = generation + 1;
+        File tmp = new File(directory, "snapshot-" + newGeneration + ".tmp");
+
+        try (FileOutputStream file = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, BUFFER_SIZE))) {
+            // Nagłówek na razie pusty - zostanie nadpisany na końcu
+            out.write(new byte[SNAPSHOT_HEADER_SIZE]);
+
+            // Dane - pozycje zapamiętujemy do indeksu
+            long[] ids = new long[entries.size()];
+            long[] createdAt = new long[entries.size()];
+            long[] offsets = new long[entries.size()];
+            int[] lengths = new int[entries.size()];
+            int count = 0;
+            long position = SNAPSHOT_HEADER_SIZE;
+
+            for (EntryState entry : entries) {
+                byte[] data;
+                try {
+                    data = entry.toBytes();
+                } catch (Exception e) {
+                    plugin.getLogger().warning("Pominięto przedmiot #" + entry.id() + " przy zapisie snapshotu: " + e.getMessage());
+                    continue;
+                }
+                out.write(data);
+                ids[count] = entry.id();
+                createdAt[count] = entry.createdAt();
+                offsets[count] = position;
+                lengths[count] = data.length;
+                position += data.length;
+                count++;
+            }
+
+            // Indeks o stałej szerokości
+            long indexOffset = position;
+            for (int i = 0; i < count; i++) {
+                out.writeLong(ids[i]);
+                out.writeLong(createdAt[i]);
+                out.writeLong(offsets[i]);
+                out.writeInt(lengths[i]);
+            }
+            out.flush();
+
+            // Uzupełnij nagłówek, gdy znamy już ilość i pozycję indeksu
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE);
+            header.putInt(SNAPSHOT_MAGIC).putInt(FORMAT_VERSION).putLong(snapshotLastId)
+                    .putInt(count).putLong(indexOffset).flip();
+            file.getChannel().write(header, 0);
+
+            file.getFD().sync();
+        }
+
+        Files.move(tmp.toPath(), snapshotFile(newGeneration).toPath(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        // Od teraz zmiany trafiają do dziennika nowej generacji
+        closeJournal();
+        generation = newGeneration;
+        journalValidLength = 0;
+        openJournal();
+
+        deleteOlderGenerations(newGeneration);
+
+        if (plugin.getSettings().debug()) {
+            plugin.getLogger().info("Skompaktowano magazyn Otchłani (" + entries.size() + " przedmiotów, generacja " + newGeneration + ")");
+        }
+    }
+
+    private void openJournal() throws IOException {
+        File path = journalFile(generation);
+
+        // Obetnij ewentualny uszkodzony ogon po crashu, żeby nowe rekordy były czytelne
+        if (path.exists() && journalValidLength >= JOURNAL_HEADER_SIZE) {
+            try (FileChannel channel = FileChannel.open(path.toPath(), java.nio.file.StandardOpenOption.WRITE)) {
+                channel.truncate(journalValidLength);
+            }
+            journalFile = new FileOutputStream(path, true);
+            journal = new DataOutputStream(new BufferedOutputStream(journalFile, BUFFER_SIZE));
+        } else {
+            journalFile = new FileOutputStream(path, false);
+            journal = new DataOutputStream(new BufferedOutputStream(journalFile, BUFFER_SIZE));
+            journal.writeInt(JOURNAL_MAGIC);
+            journal.writeInt(FORMAT_VERSION);
+            journal.writeLong(generation);
+            journal.flush();
+        }
+    }
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.flush();
+            journalFile.getFD().sync();
+            journal.close();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Błąd zamykania dziennika Otchłani: " + e.getMessage());
+        }
+        journal = null;
+        journalFile = null;
+    }
+
+    // ============================================================
+    //                          Odczyt
+    // ============================================================
+
+    /**
+     * Mapuje snapshot do pamięci i tworzy leniwe wpisy na podstawie indeksu
+     * Mapowanie pozostaje ważne po zamknięciu kanału, dopóki wpisy go używają
+     */
+    private List<AbyssEntry> readSnapshot(File file) throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot jest za duży do zmapowania: " + size + " B");
+            }
+            if (size < 8) {
+                throw new IOException("Nieprawidłowy plik snapshotu: " + file.getName());
+            }
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        if (map.getInt(0) != SNAPSHOT_MAGIC) {
+            throw new IOException("Nieprawidłowy plik snapshotu: " + file.getName());
+        }
+        int version = map.getInt(4);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Nieobsługiwana wersja snapshotu: " + version);
+        }
+
+        lastId = Math.max(lastId, map.getLong(8));
+        int count = map.getInt(16);
+        long indexOffset = map.getLong(20);
+        if (count < 0 || indexOffset < SNAPSHOT_HEADER_SIZE
+                || indexOffset + (long) count * INDEX_ENTRY_SIZE > map.capacity()) {
+            throw new IOException("Uszkodzony indeks snapshotu: " + file.getName());
+        }
+
+        List<AbyssEntry> entries = new ArrayList<>(count);
+        int position = (int) indexOffset;
+        for (int i = 0; i < count; i++, position += INDEX_ENTRY_SIZE) {
+            long id = map.getLong(position);
+            long createdAt = map.getLong(position + 8);
+            long offset = map.getLong(position + 16);
+            int length = map.getInt(position + 24);
+            if (offset < SNAPSHOT_HEADER_SIZE || length < 0 || offset + length > indexOffset) {
+                throw new IOException("Uszkodzony wpis indeksu snapshotu: #" + id);
+            }
+            entries.add(new AbyssEntry(id, map.slice((int) offset, length), createdAt));
+        }
+
+        return entries;
+    }
+
+    /**
+     * Odtwarza dziennik, zatrzymując się na pierwszym niepełnym lub uszkodzonym rekordzie
+     * Ustawia długość poprawnej części pliku, od której będą dopisywane nowe rekordy
+     */
+    private List<AbyssEntry> replayJournal(File file, List<AbyssEntry> entries) throws IOException {
+        // Mapa id -> wpis powstaje dopiero, gdy dziennik faktycznie coś zawiera
+        LinkedHashMap<Long, AbyssEntry> live = null;
+        long validLength = 0;
+        int replayed = 0;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            int magic = in.readInt();
+            int version = in.readInt();
+            if (magic != JOURNAL_MAGIC || version != FORMAT_VERSION || in.readLong() != generation) {
+                plugin.getLogger().warning("Pominięto nieprawidłowy dziennik: " + file.getName());
+                return entries;
+            }
+            validLength = JOURNAL_HEADER_SIZE;
+
+            while (true) {
+                int type = in.read();
+                if (type < 0) {
+                    break;
+                }
+
+                int length = in.readInt();
+                if (length < 0 || length > MAX_RECORD_SIZE) {
+                    throw new IOException("Nieprawidłowa długość rekordu: " + length);
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                int expectedCrc = in.readInt();
+
+                crc.reset();
+                crc.update(type);
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) {
+                    throw new IOException("Niezgodna suma kontrolna rekordu");
+                }
+
+                if (live == null) {
+                    live = new LinkedHashMap<>();
+                    for (AbyssEntry entry : entries) {
+                        live.put(entry.getId(), entry);
+                    }
+                }
+                applyRecord((byte) type, payload, live);
+                validLength += 1 + 4 + length + 4;
+                replayed++;
+            }
+        } catch (EOFException e) {
+            plugin.getLogger().warning("Dziennik Otchłani kończy się niepełnym rekordem (prawdopodobnie crash) - pominięto ogon");
+        } catch (IOException e) {
+            plugin.getLogger().warning("Dziennik Otchłani jest uszkodzony (" + e.getMessage() + ") - pominięto ogon");
+        }
+
+        opsSinceCompaction += replayed;
+        journalValidLength = validLength;
+        return live == null ? entries : new ArrayList<>(live.values());
+    }
+
+    private void applyRecord(byte type, byte[] payload, LinkedHashMap<Long, AbyssEntry> live) throws IOException {
+        switch (type) {
+            case OP_PUT -> {
+                long id = readLong(payload, 0);
+                long createdAt = readLong(payload, 8);
+                // Nadpisanie istniejącego klucza zachowuje jego pozycję w LinkedHashMap
+                ByteBuffer data = ByteBuffer.wrap(payload, 16, payload.length - 16).slice();
+                live.put(id, new AbyssEntry(id, data, createdAt));
+                lastId = Math.max(lastId, id);
+            }
+            case OP_REMOVE -> live.remove(readLong(payload, 0));
+            case OP_CLEAR -> live.clear();
+            default -> throw new IOException("Nieznany typ rekordu: " + type);
+        }
+    }
+
+    private static long readLong(byte[] data, int offset) throws IOException {
+        if (data.length < offset + 8) {
+            throw new IOException("Za krótki rekord");
+        }
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (data[i] & 0xFF);
+        }
+        return value;
+    }
+
+    // ============================================================
+    //                          Pliki
+    // ============================================================
+
+    private long findLatestGeneration() {
+        long latest = 0;
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return latest;
+        }
+
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith("snapshot-") && name.endsWith(".dat")) {
+                try {
+                    latest = Math.max(latest, Long.parseLong(name.substring(9, name.length() - 4)));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return latest;
+    }
+
+    private void deleteOlderGenerations(long current) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            String name = file.getName();
+            long fileGeneration = parseGeneration(name);
+            if (fileGeneration >= 0 && fileGeneration < current) {
+                if (!file.delete()) {
+                    plugin.getLogger().warning("Nie można usunąć starego pliku magazynu: " + name);
+                }
+            }
+        }
+    }
+
+    private static long parseGeneration(String name) {
+        String number;
+        if (name.startsWith("snapshot-") && (name.endsWith(".dat") || name.endsWith(".tmp"))) {
+            number = name.substring(9, name.length() - 4);
+        } else if (name.startsWith("journal-") && name.endsWith(".log")) {
+            number = name.substring(8, name.length() - 4);
+        } else {
+            return -1;
+        }
+
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private File snapshotFile(long gen) {
+        return new File(directory, "snapshot-" + gen + ".dat");
+    }
+
+    private File journalFile(long gen) {
+        return new File(directory, "journal-" + gen + ".log");
+    }
+
+    // Operacje przekazywane do wątku zapisującego
+    private interface Op {
+    }
+
+    // Postać przedmiotu z chwili zgłoszenia zmiany
+    private record PutOp(EntryState state) implements Op {
+    }
+
+    private record RemoveOp(long id) implements Op {
+    }
+
+    private record ClearOp() implements Op {
+    }
+
+    private record CompactOp(List<EntryState> entries, long lastId) implements Op {
+    }
+
+    private record StopOp() implements Op {
+    }
+}